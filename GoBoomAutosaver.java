@@ -0,0 +1,402 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves GoBoomGame tables in the background, so a killed process loses only the last moments
+ * of play and no game thread ever waits for the disk.
+ *
+ * A game bumps its version whenever a command changes it and, the first time it changes after
+ * a save, puts its table on a queue; that is all the game thread does. One writer thread
+ * wakes every interval, takes the tables off the queue oldest change first and, for each,
+ * copies the game with saveText() (holding the game's lock only for that copy) and writes
+ * it. Writes are capped at writesPerSecond so thousands of busy tables do not flood the disk;
+ * tables over the cap stay queued for the next interval, and a table that keeps changing is
+ * written at most once per interval. A table whose write fails stays queued and is tried
+ * again.
+ *
+ * What a crash loses is therefore bounded by the interval plus the time the writer needs for
+ * every table that changed meanwhile: about intervalMillis + busy tables / writesPerSecond,
+ * as long as the disk keeps up with writesPerSecond. With the defaults that is a few seconds
+ * for up to a few thousand busy tables; size writesPerSecond to the number of tables that
+ * play at once to keep it there.
+ *
+ * Deleting a save (x, or the game ending) only records the game's version and hands the table
+ * straight to the writer, which deletes the save after any write already under way. A copy
+ * taken at or before that version is never written afterwards.
+ *
+ * installShutdownHook() writes everything still queued, without the cap, when the JVM exits.
+ */
+public class GoBoomAutosaver implements Closeable {
+    public static final long DEFAULT_INTERVAL_MILLIS = 2000;
+    public static final int DEFAULT_WRITES_PER_SECOND = 2000;
+
+    /**
+     * Where a table's saves go.
+     */
+    public interface Sink {
+        void write(String text) throws IOException;
+
+        void delete() throws IOException;
+    }
+
+    /**
+     * A game registered for autosaving.
+     */
+    public final class Table {
+        private final GoBoomGame game;
+        private final Sink sink;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private volatile long changedAt;
+        private volatile boolean removed;
+        // The game's version when delete() was last called
+        private volatile long deleteVersion = -1;
+        // Only touched by the writer
+        private long savedVersion;
+        private long deletedVersion = -1;
+        private long writtenInTick = -1;
+
+        private Table(GoBoomGame game, Sink sink) {
+            this.game = game;
+            this.sink = sink;
+            this.savedVersion = game.getVersion();
+        }
+
+        /**
+         * Called by the game after every change. Never blocks.
+         */
+        void changed() {
+            if (!removed) {
+                enqueue();
+            }
+        }
+
+        /**
+         * Has the save deleted, e.g. when the game is over. Returns at once; the writer deletes
+         * it next, after any write already under way. Changes after this save it again.
+         */
+        public void delete() {
+            deleteVersion = game.getVersion();
+            saveSoon(this);
+        }
+
+        /**
+         * Writes any pending change one last time, then stops watching the game.
+         */
+        public void unregister() {
+            removed = true;
+            game.setAutosave(null);
+            enqueue();
+        }
+
+        private void enqueue() {
+            if (queued.compareAndSet(false, true)) {
+                changedAt = System.nanoTime();
+                queue.add(this);
+            }
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Table> queue = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService writer;
+    private final long intervalMillis;
+    private final int writesPerTick;
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Only touched by the writer
+    private long tick;
+
+    public GoBoomAutosaver(long intervalMillis, int writesPerSecond) {
+        this.intervalMillis = intervalMillis;
+        this.writesPerTick = (int) Math.max(1, writesPerSecond * intervalMillis / 1000);
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(() -> writeQueued(writesPerTick), intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Autosaves the game to a save file in the format GoBoomGame's s command writes.
+     */
+    public Table register(GoBoomGame game, Path file) {
+        return register(game, new Sink() {
+            @Override
+            public void write(String text) throws IOException {
+                GoBoomGame.writeSaveFile(file, text);
+            }
+
+            @Override
+            public void delete() throws IOException {
+                Files.deleteIfExists(file);
+            }
+        });
+    }
+
+    /**
+     * Autosaves the game as a table of a GoBoomSaveStore.
+     */
+    public Table register(GoBoomGame game, GoBoomSaveStore store, int tableId) {
+        return register(game, new Sink() {
+            @Override
+            public void write(String text) throws IOException {
+                store.write(tableId, text);
+            }
+
+            @Override
+            public void delete() throws IOException {
+                store.delete(tableId);
+            }
+        });
+    }
+
+    public Table register(GoBoomGame game, Sink sink) {
+        Table table = new Table(game, sink);
+        game.setAutosave(table);
+        return table;
+    }
+
+    /**
+     * Makes the JVM write every pending change before it exits, including on Ctrl-C and kill
+     * (but not kill -9).
+     */
+    public void installShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "autosave-shutdown"));
+    }
+
+    /**
+     * Writes up to limit queued tables, oldest change first. Runs on the writer thread only,
+     * so no two writes of one table ever overlap.
+     */
+    private void writeQueued(int limit) {
+        tick++;
+        for (int written = 0; written < limit; written++) {
+            Table table = queue.peek();
+            if (table == null || table.writtenInTick == tick) {
+                // Everything queued before this pass has been written
+                break;
+            }
+            queue.poll();
+            table.writtenInTick = tick;
+            // Cleared first, so a change from here on queues the table again
+            table.queued.set(false);
+            save(table);
+        }
+    }
+
+    /**
+     * Writes every queued table now, ignoring the rate limit, and waits until that is done.
+     */
+    public void flush() {
+        if (closed.get()) {
+            // close() has written everything already
+            return;
+        }
+        try {
+            runOnWriter(() -> writeQueued(Integer.MAX_VALUE)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Autosave flush failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Future<?> runOnWriter(Runnable task) {
+        return writer.submit(task);
+    }
+
+    /**
+     * Has the writer save the table now, ahead of the queue. If the table is queued as well it
+     * stays there, and finds nothing left to do when its turn comes.
+     */
+    private void saveSoon(Table table) {
+        try {
+            writer.execute(() -> save(table));
+        } catch (RejectedExecutionException e) {
+            // Closed: once the last pass is over nothing else writes, so it is done here
+            awaitWriter();
+            save(table);
+        }
+    }
+
+    /**
+     * Brings the table's save up to date: deletes it if delete() was called, then writes the
+     * game if it changed since. Runs on the writer thread only.
+     */
+    private void save(Table table) {
+        try {
+            long version = table.game.getVersion();
+            if (version == table.savedVersion && table.deleteVersion == table.deletedVersion) {
+                return;
+            }
+            String text = version > table.deleteVersion ? table.game.saveText() : null;
+            // Read again after the copy: a delete() that came in meanwhile must win over it
+            long deleteVersion = table.deleteVersion;
+            if (deleteVersion != table.deletedVersion) {
+                table.sink.delete();
+                table.deletedVersion = deleteVersion;
+            }
+            if (text != null && version > deleteVersion) {
+                table.sink.write(text);
+                writeCount.incrementAndGet();
+            }
+            table.savedVersion = version;
+        } catch (IOException | RuntimeException e) {
+            // Any exception escaping the writer would cancel autosaving for every table
+            table.game.getOutput().println("Autosave failed, retrying in " + intervalMillis + " ms: " + e);
+            table.enqueue();
+        }
+    }
+
+    /**
+     * Saves written so far.
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Tables with changes not yet written.
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * How long the oldest unwritten change has been waiting: what a crash now would lose.
+     */
+    public long getOldestPendingMillis() {
+        Table oldest = queue.peek();
+        return oldest == null ? 0 : (System.nanoTime() - oldest.changedAt) / 1_000_000;
+    }
+
+    /**
+     * Writes everything still pending and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Queued behind any write in progress; shutdown() lets it run but stops the timer
+        runOnWriter(() -> writeQueued(Integer.MAX_VALUE));
+        writer.shutdown();
+        awaitWriter();
+    }
+
+    private void awaitWriter() {
+        boolean interrupted = false;
+        while (!writer.isTerminated()) {
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Plays random commands on thousands of store tables while they are autosaved, and reports
+     * how long commands took, how many writes were made and what a crash at the end would have
+     * lost. Finally checks that after close() every save matches its game.
+     *
+     * Usage: java GoBoomAutosaver [tables] [seconds] [threads] [writes per second]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int tables = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int writesPerSecond = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_WRITES_PER_SECOND;
+
+        Path directory = Files.createTempDirectory("goboom-autosave");
+        GoBoomSaveStore store = new GoBoomSaveStore(directory, 4, 1);
+        GoBoomAutosaver autosaver = new GoBoomAutosaver(DEFAULT_INTERVAL_MILLIS, writesPerSecond);
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+        GoBoomGame[] games = new GoBoomGame[tables];
+        for (int id = 0; id < tables; id++) {
+            games[id] = new GoBoomGame(4, 1);
+            games[id].setOutput(silent);
+            games[id].setRandom(new Random(id));
+            games[id].newGame();
+            autosaver.register(games[id], store, id);
+        }
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long[] commands = new long[threads];
+        long[] slowest = new long[threads];
+        Thread[] players = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            players[t] = new Thread(() -> {
+                Random random = new Random(thread);
+                while (System.nanoTime() < deadline) {
+                    GoBoomGame game = games[random.nextInt(tables / threads) * threads + thread];
+                    List<String> hand = game.getHand(game.getCurrentPlayer());
+                    String command = hand.isEmpty() || random.nextInt(4) == 0
+                            ? "d" : hand.get(random.nextInt(hand.size()));
+                    long start = System.nanoTime();
+                    if (game.handleCommand(command)) {
+                        game.handleCommand("r");
+                    }
+                    slowest[thread] = Math.max(slowest[thread], System.nanoTime() - start);
+                    commands[thread]++;
+                }
+            });
+            players[t].start();
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+
+        long total = 0;
+        long worst = 0;
+        for (int t = 0; t < threads; t++) {
+            total += commands[t];
+            worst = Math.max(worst, slowest[t]);
+        }
+        int pending = autosaver.getPendingCount();
+        long lost = autosaver.getOldestPendingMillis();
+        System.out.printf("%d tables, %d commands in %d s on %d threads, slowest command %.2f ms%n", tables, total,
+                seconds, threads, worst / 1e6);
+        System.out.printf("%d writes at most %d/s; a crash now would lose up to %d ms of play at %d tables%n",
+                autosaver.getWriteCount(), writesPerSecond, lost, pending);
+        System.out.printf("Bound if the disk kept up: %d ms interval + %d busy tables / %d writes/s = %d ms%n",
+                DEFAULT_INTERVAL_MILLIS, tables, writesPerSecond,
+                DEFAULT_INTERVAL_MILLIS + tables * 1000L / writesPerSecond);
+
+        long start = System.nanoTime();
+        autosaver.close();
+        System.out.printf("Flushed on close in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+        List<Integer> mismatched = new ArrayList<>();
+        for (int id = 0; id < tables; id++) {
+            if (!games[id].saveText().equals(store.read(id))) {
+                mismatched.add(id);
+            }
+        }
+        store.close();
+        System.out.println(mismatched.isEmpty()
+                ? "Every save matches its game"
+                : mismatched.size() + " saves do not match their game, e.g. table " + mismatched.get(0));
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Resolves the tricks of many games at once, the batch counterpart of determineTrickWinner()
+ * in GoBoomGame and of GoBoomEngine's trick rule, for bulk simulation where thousands of
+ * games reach the end of a trick together.
+ *
+ * The batch is struct-of-arrays: cards[seat * count + game] is the card each seat played in
+ * each game (-1 for a pass), with the lead card and the seat that started the trick in their
+ * own arrays. Every seat's card becomes one sortable key, so the winner is a plain maximum
+ * over the seats with no data-dependent branches:
+ * <pre>
+ *   key = (rank + 2 if it follows the lead suit, 1 if it does not, 0 for a pass) * 16
+ *         + (15 - position in the playing order)
+ * </pre>
+ * The highest card of the lead suit has the biggest key, a tie goes to the earlier card, and
+ * when nobody followed suit the first card played wins, exactly like GoBoomEngine.
+ *
+ * This class always works on its own: the same arithmetic runs one game at a time. The SIMD
+ * version, GoBoomBatchTricksVector, uses the incubating jdk.incubator.vector API, so it lives
+ * in vector/ where a plain javac *.java does not pick it up. To use it, compile it separately
+ * and start the JVM with the module:
+ * <pre>
+ *   javac *.java
+ *   javac --add-modules jdk.incubator.vector -cp . -d . vector/GoBoomBatchTricksVector.java
+ *   java --add-modules jdk.incubator.vector GoBoomBatchTricks
+ * </pre>
+ * Without the compiled class or the module, resolve() quietly falls back to the scalar loop.
+ */
+public final class GoBoomBatchTricks {
+    // suit = card * 79 >> 10 is card / 13 for every card id, without a division
+    static final int SUIT_MULTIPLIER = 79;
+    static final int SUIT_SHIFT = 10;
+
+    /**
+     * Implemented by the vector version, which is only loaded when its module is present.
+     */
+    interface Resolver {
+        void resolve(int numPlayers, int count, int[] cards, int[] leadCards, int[] startSeats, int[] winners);
+    }
+
+    private static final Resolver VECTOR = loadVectorResolver();
+
+    private GoBoomBatchTricks() {
+    }
+
+    private static Resolver loadVectorResolver() {
+        try {
+            return (Resolver) Class.forName("GoBoomBatchTricksVector").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether batches run on the vector API rather than the scalar loop.
+     */
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Writes the winning seat of each of the first [count] games to winners, or -1 where every
+     * seat passed.
+     */
+    public static void resolve(int numPlayers, int count, int[] cards, int[] leadCards, int[] startSeats,
+                               int[] winners) {
+        if (VECTOR != null) {
+            VECTOR.resolve(numPlayers, count, cards, leadCards, startSeats, winners);
+        } else {
+            resolveScalar(numPlayers, 0, count, cards, leadCards, startSeats, winners);
+        }
+    }
+
+    /**
+     * The scalar version for games from..count-1 of a batch of count games; the vector
+     * version uses it for the games left over after its last full vector.
+     */
+    static void resolveScalar(int numPlayers, int from, int count, int[] cards, int[] leadCards, int[] startSeats,
+                              int[] winners) {
+        for (int game = from; game < count; game++) {
+            int leadSuit = (leadCards[game] * SUIT_MULTIPLIER) >> SUIT_SHIFT;
+            int start = startSeats[game];
+            int best = 0;
+            for (int seat = 0; seat < numPlayers; seat++) {
+                int card = cards[seat * count + game];
+                int suit = (card * SUIT_MULTIPLIER) >> SUIT_SHIFT;
+                int primary = card < 0 ? 0 : suit == leadSuit ? card - suit * GoBoomEngine.NUM_RANKS + 2 : 1;
+                int order = seat - start;
+                if (order < 0) {
+                    order += numPlayers;
+                }
+                best = Math.max(best, primary << 4 | (15 - order));
+            }
+            winners[game] = winnerFromKey(best, start, numPlayers);
+        }
+    }
+
+    static int winnerFromKey(int key, int start, int numPlayers) {
+        if (key < 16) {
+            return -1;
+        }
+        int seat = start + 15 - (key & 15);
+        return seat >= numPlayers ? seat - numPlayers : seat;
+    }
+
+    /**
+     * Checks the batch against GoBoomEngine's per-game rule on random tricks, then compares
+     * the speed of the per-game rule, the scalar batch and the vector batch.
+     *
+     * Usage: java --add-modules jdk.incubator.vector GoBoomBatchTricks [games] [players]
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int numPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        int[] cards = new int[numPlayers * count];
+        int[] leadCards = new int[count];
+        int[] startSeats = new int[count];
+        int[] trick = new int[numPlayers];
+        long state = 42;
+        for (int game = 0; game < count; game++) {
+            state = GoBoomEngine.mix(state);
+            int start = (int) ((state >>> 1) % numPlayers);
+            startSeats[game] = start;
+            int lead = -1;
+            for (int i = 0; i < numPlayers; i++) {
+                int seat = (start + i) % numPlayers;
+                state = GoBoomEngine.mix(state);
+                int card = (state & 7) == 0 ? -1 : (int) ((state >>> 8) % GoBoomEngine.NUM_CARDS);
+                cards[seat * count + game] = card;
+                if (lead < 0) {
+                    lead = card;
+                }
+            }
+            // The first trick of a round is led by a card from the deck instead
+            leadCards[game] = (state & 0x300) == 0 ? (int) ((state >>> 20) % GoBoomEngine.NUM_CARDS) : lead;
+        }
+
+        int[] expected = new int[count];
+        int[] scalar = new int[count];
+        int[] batch = new int[count];
+        resolveScalar(numPlayers, 0, count, cards, leadCards, startSeats, scalar);
+        resolve(numPlayers, count, cards, leadCards, startSeats, batch);
+        for (int game = 0; game < count; game++) {
+            for (int seat = 0; seat < numPlayers; seat++) {
+                trick[seat] = cards[seat * count + game];
+            }
+            expected[game] = GoBoomEngine.trickWinner(trick, numPlayers, leadCards[game], startSeats[game]);
+            if (scalar[game] != expected[game] || batch[game] != expected[game]) {
+                throw new IllegalStateException("Game " + game + ": expected seat " + expected[game]
+                        + ", scalar batch gave " + scalar[game] + ", batch gave " + batch[game]);
+            }
+        }
+        System.out.println("All " + count + " tricks match the per-game rule; vector API "
+                + (isVectorized() ? "in use" : "not available, batches run scalar"));
+
+        int repeats = Math.max(1, 200_000_000 / (count * numPlayers));
+        for (int warmup = 0; warmup < 3; warmup++) {
+            long start = System.nanoTime();
+            int checksum = 0;
+            for (int r = 0; r < repeats; r++) {
+                for (int game = 0; game < count; game++) {
+                    for (int seat = 0; seat < numPlayers; seat++) {
+                        trick[seat] = cards[seat * count + game];
+                    }
+                    checksum += GoBoomEngine.trickWinner(trick, numPlayers, leadCards[game], startSeats[game]);
+                }
+            }
+            double perGame = rate(start, repeats, count);
+
+            start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                resolveScalar(numPlayers, 0, count, cards, leadCards, startSeats, scalar);
+                checksum += scalar[r % count];
+            }
+            double scalarRate = rate(start, repeats, count);
+
+            start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                resolve(numPlayers, count, cards, leadCards, startSeats, batch);
+                checksum += batch[r % count];
+            }
+            double batchRate = rate(start, repeats, count);
+
+            System.out.printf("Per game %.0fM tricks/s, scalar batch %.0fM tricks/s, batch %.0fM tricks/s (%d)%n",
+                    perGame, scalarRate, batchRate, checksum);
+        }
+    }
+
+    private static double rate(long start, int repeats, int count) {
+        return (double) repeats * count / ((System.nanoTime() - start) / 1e9) / 1e6;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Simple computer players for GoBoomEngine. Strategies that keep state (like the random one)
+ * must not be shared between threads.
+ */
+public final class GoBoomBots {
+    private GoBoomBots() {
+    }
+
+    /**
+     * Always plays the lowest-ranked legal card.
+     */
+    public static GoBoomEngine.Strategy lowestCard() {
+        return (engine, seat, legalCards) -> {
+            for (int rank = 0; rank < GoBoomEngine.NUM_RANKS; rank++) {
+                long cards = legalCards & GoBoomEngine.rankMask(rank);
+                if (cards != 0) {
+                    return Long.numberOfTrailingZeros(cards);
+                }
+            }
+            return Long.numberOfTrailingZeros(legalCards);
+        };
+    }
+
+    /**
+     * Always plays the highest-ranked legal card.
+     */
+    public static GoBoomEngine.Strategy highestCard() {
+        return (engine, seat, legalCards) -> {
+            for (int rank = GoBoomEngine.NUM_RANKS - 1; rank >= 0; rank--) {
+                long cards = legalCards & GoBoomEngine.rankMask(rank);
+                if (cards != 0) {
+                    return Long.numberOfTrailingZeros(cards);
+                }
+            }
+            return Long.numberOfTrailingZeros(legalCards);
+        };
+    }
+
+    /**
+     * Plays a uniformly random legal card.
+     */
+    public static GoBoomEngine.Strategy randomCard(long seed) {
+        return new GoBoomEngine.Strategy() {
+            private long state = seed;
+
+            @Override
+            public int chooseCard(GoBoomEngine engine, int seat, long legalCards) {
+                state += 0x9E3779B97F4A7C15L;
+                int pick = (int) ((GoBoomEngine.mix(state) >>> 1) % Long.bitCount(legalCards));
+                return nthSetBit(legalCards, pick);
+            }
+        };
+    }
+
+    static int nthSetBit(long bits, int n) {
+        for (int i = 0; i < n; i++) {
+            bits &= bits - 1;
+        }
+        return Long.numberOfTrailingZeros(bits);
+    }
+}
@@ -0,0 +1,337 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends live table events (cards played and drawn, passes, trick and round winners) to any
+ * number of spectators.
+ *
+ * Each event is encoded once into a small read-only buffer that every subscriber shares. The
+ * game thread only appends it to its table's pending queue; the fan-out to subscribers runs on
+ * a small dispatcher pool shared by all tables, at most MAX_DELIVERIES subscriber deliveries
+ * per task, so one table with many watchers takes turns with the others instead of starving
+ * them; a long subscriber list is simply covered over several tasks. Every subscriber has its
+ * own bounded queue, and a subscriber that falls behind loses its oldest events rather than
+ * holding anyone up. When the dispatcher itself falls behind a table, the table's oldest
+ * pending events are dropped for all of its subscribers. Either way the loss shows in each
+ * subscriber's getDropped(), and the sequence numbers in the events show where the gaps are.
+ */
+public class GoBoomBroadcaster implements AutoCloseable {
+    public static final byte EVENT_PLAY = 1;
+    public static final byte EVENT_DRAW = 2;
+    public static final byte EVENT_PASS = 3;
+    public static final byte EVENT_TRICK = 4;
+    public static final byte EVENT_ROUND_OVER = 5;
+
+    // Event layout: type, seat, card, unused, table id (int), trick number (int), sequence (long)
+    public static final int EVENT_SIZE = 20;
+
+    private static final int MAX_PENDING = 4096;
+    private static final int MAX_DELIVERIES = 4096;
+    private static final long QUIET_ROUND_NANOS = 2_000_000;
+
+    private final ExecutorService dispatcher;
+    private final int subscriberCapacity;
+
+    public GoBoomBroadcaster(int dispatcherThreads, int subscriberCapacity) {
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "broadcast");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.subscriberCapacity = subscriberCapacity;
+    }
+
+    /**
+     * Creates the event channel for one table. Attach it to the table's GoBoomEngine or
+     * GoBoomGame with setListener().
+     */
+    public Channel openChannel(int tableId) {
+        return new Channel(tableId);
+    }
+
+    /**
+     * A spectator's view of one channel. Buffers are shared with other subscribers, so read
+     * them with absolute gets or through duplicate().
+     */
+    public class Subscriber {
+        private final ArrayBlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(subscriberCapacity);
+        private final AtomicLong dropped = new AtomicLong();
+        private final Channel channel;
+        // The channel's drop count when this subscriber joined
+        private final long channelDroppedAtStart;
+
+        private Subscriber(Channel channel) {
+            this.channel = channel;
+            this.channelDroppedAtStart = channel.dropped.get();
+        }
+
+        public ByteBuffer poll() {
+            return queue.poll();
+        }
+
+        public ByteBuffer poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        /**
+         * How many events this subscriber never got, because it or the dispatcher was too slow.
+         */
+        public long getDropped() {
+            return dropped.get() + channel.dropped.get() - channelDroppedAtStart;
+        }
+
+        private void deliver(ByteBuffer event) {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * The events of one table.
+     */
+    public class Channel implements GoBoomEngine.Listener {
+        private final int tableId;
+        private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final ConcurrentLinkedQueue<ByteBuffer> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private long sequence;
+        private int trickNumber = 1;
+        // The event being fanned out, who gets it and the next one to get it; only touched by
+        // the one drain task of this channel that runs at a time
+        private ByteBuffer current;
+        private Subscriber[] targets;
+        private int nextTarget;
+
+        private Channel(int tableId) {
+            this.tableId = tableId;
+        }
+
+        public Subscriber subscribe() {
+            Subscriber subscriber = new Subscriber(this);
+            subscribers.add(subscriber);
+            return subscriber;
+        }
+
+        public void unsubscribe(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        public int getSubscriberCount() {
+            return subscribers.size();
+        }
+
+        /**
+         * How many events were dropped before the dispatcher reached them. Subscribers add
+         * these to their own getDropped(), so publish() never has to visit them.
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        @Override
+        public void cardPlayed(int seat, int card) {
+            publish(EVENT_PLAY, seat, card);
+        }
+
+        @Override
+        public void cardDrawn(int seat, int card) {
+            publish(EVENT_DRAW, seat, card);
+        }
+
+        @Override
+        public void turnPassed(int seat) {
+            publish(EVENT_PASS, seat, -1);
+        }
+
+        @Override
+        public void trickWon(int seat, int card, int trickNumber) {
+            this.trickNumber = trickNumber;
+            publish(EVENT_TRICK, seat, card);
+            this.trickNumber = trickNumber + 1;
+        }
+
+        @Override
+        public void roundOver(int winner, int trickCount) {
+            publish(EVENT_ROUND_OVER, winner, -1);
+            this.trickNumber = 1;
+        }
+
+        /**
+         * Called on the game thread. Never blocks: when the dispatcher is far behind, the
+         * oldest pending event is dropped.
+         */
+        private void publish(byte type, int seat, int card) {
+            if (subscribers.isEmpty()) {
+                sequence++;
+                return;
+            }
+
+            ByteBuffer event = ByteBuffer.allocate(EVENT_SIZE);
+            event.put(0, type);
+            event.put(1, (byte) seat);
+            event.put(2, (byte) card);
+            event.putInt(4, tableId);
+            event.putInt(8, trickNumber);
+            event.putLong(12, sequence++);
+            pending.add(event.asReadOnlyBuffer());
+
+            if (pendingCount.incrementAndGet() > MAX_PENDING && pending.poll() != null) {
+                pendingCount.decrementAndGet();
+                dropped.incrementAndGet();
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // The broadcaster is closed; whatever is pending is never delivered
+            }
+        }
+
+        private void drain() {
+            int budget = MAX_DELIVERIES;
+            while (budget > 0) {
+                if (current == null) {
+                    current = pending.poll();
+                    if (current == null) {
+                        break;
+                    }
+                    pendingCount.decrementAndGet();
+                    targets = subscribers.toArray(new Subscriber[0]);
+                    nextTarget = 0;
+                }
+                int end = Math.min(targets.length, nextTarget + budget);
+                // An event with nobody left to receive it still costs one, so the loop ends
+                budget -= Math.max(1, end - nextTarget);
+                for (; nextTarget < end; nextTarget++) {
+                    targets[nextTarget].deliver(current);
+                }
+                if (nextTarget == targets.length) {
+                    current = null;
+                    targets = null;
+                }
+            }
+
+            scheduled.set(false);
+            // Go to the back of the dispatcher queue if work is left, so other tables get a turn
+            if ((current != null || !pending.isEmpty()) && scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+    }
+
+    public static byte eventType(ByteBuffer event) {
+        return event.get(0);
+    }
+
+    public static int eventSeat(ByteBuffer event) {
+        return event.get(1);
+    }
+
+    public static int eventCard(ByteBuffer event) {
+        return event.get(2);
+    }
+
+    public static int eventTable(ByteBuffer event) {
+        return event.getInt(4);
+    }
+
+    public static int eventTrick(ByteBuffer event) {
+        return event.getInt(8);
+    }
+
+    public static long eventSequence(ByteBuffer event) {
+        return event.getLong(12);
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Runs bot games on a few tables: table 0, watched by many spectators, plays flat out and
+     * the others play a round every few milliseconds for as long as it does. Reports how fast
+     * the tables played and how many events each lost before dispatch; with fair dispatching
+     * the quiet tables lose none however many watch table 0.
+     *
+     * Usage: java GoBoomBroadcaster [watchers] [tables] [rounds]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int watchers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int tables = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        try (GoBoomBroadcaster broadcaster = new GoBoomBroadcaster(2, 256)) {
+            AtomicBoolean busyTableDone = new AtomicBoolean();
+            Thread[] players = new Thread[tables];
+            Channel[] channels = new Channel[tables];
+            Subscriber busyWatcher = null;
+            for (int t = 0; t < tables; t++) {
+                Channel channel = broadcaster.openChannel(t);
+                channels[t] = channel;
+                int spectators = t == 0 ? watchers : 1;
+                for (int i = 0; i < spectators; i++) {
+                    Subscriber subscriber = channel.subscribe();
+                    if (t == 0 && i == 0) {
+                        busyWatcher = subscriber;
+                    }
+                }
+                int table = t;
+                players[t] = new Thread(() -> {
+                    GoBoomEngine engine = new GoBoomEngine();
+                    engine.setListener(channel);
+                    GoBoomEngine.Strategy[] bots = new GoBoomEngine.Strategy[engine.getNumPlayers()];
+                    for (int i = 0; i < bots.length; i++) {
+                        bots[i] = GoBoomBots.randomCard(table * 10 + i);
+                    }
+                    long start = System.nanoTime();
+                    int played = 0;
+                    while (table == 0 ? played < rounds : !busyTableDone.get()) {
+                        engine.newRound(played);
+                        engine.playRound(bots);
+                        played++;
+                        if (table != 0) {
+                            LockSupport.parkNanos(QUIET_ROUND_NANOS);
+                        }
+                    }
+                    if (table == 0) {
+                        busyTableDone.set(true);
+                    }
+                    System.out.printf("Table %d (%d watchers): %d rounds, %.0f rounds/s%n", table, spectators,
+                            played, played / ((System.nanoTime() - start) / 1e9));
+                });
+                players[t].start();
+            }
+            for (Thread player : players) {
+                player.join();
+            }
+            long quietDropped = 0;
+            for (int t = 1; t < tables; t++) {
+                quietDropped += channels[t].getDropped();
+            }
+            System.out.printf("Table 0: %d events dropped before dispatch, %d lost by a watcher that never reads%n",
+                    channels[0].getDropped(), busyWatcher.getDropped());
+            System.out.printf("Other tables: %d events dropped before dispatch%n", quietDropped);
+        }
+    }
+}
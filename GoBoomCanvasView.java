@@ -0,0 +1,358 @@
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import javafx.stage.Stage;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A table view for watching bots play, drawn on a single Canvas once per frame.
+ *
+ * The bots play on their own thread as fast as the speed slider allows. Once per frame the
+ * view asks for a snapshot of the table, which the bot thread copies between two moves, and
+ * the next frame draws whatever snapshot is newest. A snapshot is a few words per seat, so a
+ * frame costs the same whether one move or ten thousand were played since the last one; the
+ * moves in between are simply never drawn. Cards played to the trick fly from their seat to
+ * the center.
+ */
+public class GoBoomCanvasView {
+    private static final double WIDTH = 960;
+    private static final double HEIGHT = 720;
+    private static final double HAND_CARD_WIDTH = 40;
+    private static final double HAND_CARD_HEIGHT = 60;
+    private static final double MAX_HAND_WIDTH = 220;
+    private static final long FLIGHT_NANOS = 150_000_000L;
+    // The speed slider runs from 1 to 10^MAX_SPEED_EXPONENT moves per second; its top is "unlimited"
+    private static final double MAX_SPEED_EXPONENT = 5;
+
+    /**
+     * What a frame needs to know about the table.
+     */
+    private static class Snapshot {
+        final long[] handLo;
+        final long[] handHi;
+        final int[] trickCards;
+        final int[] scores;
+        final int[] roundWins;
+        int leadCard = -1;
+        int currentSeat;
+        int trickNumber;
+        int cardsLeft;
+        int rounds;
+        long moves;
+
+        Snapshot(int numPlayers) {
+            handLo = new long[numPlayers];
+            handHi = new long[numPlayers];
+            trickCards = new int[numPlayers];
+            scores = new int[numPlayers];
+            roundWins = new int[numPlayers];
+        }
+
+        void copyFrom(GoBoomEngine engine, int[] wins, int roundCount, long moveCount) {
+            for (int seat = 0; seat < handLo.length; seat++) {
+                handLo[seat] = engine.getHandLo(seat);
+                handHi[seat] = engine.getHandHi(seat);
+                trickCards[seat] = engine.getTrickCard(seat);
+                scores[seat] = engine.getScore(seat);
+                roundWins[seat] = wins[seat];
+            }
+            leadCard = engine.getLeadCard();
+            currentSeat = engine.getCurrentSeat();
+            trickNumber = engine.getTrickNumber();
+            cardsLeft = engine.getCardsLeftInDeck();
+            rounds = roundCount;
+            moves = moveCount;
+        }
+
+        void copyFrom(Snapshot other) {
+            System.arraycopy(other.handLo, 0, handLo, 0, handLo.length);
+            System.arraycopy(other.handHi, 0, handHi, 0, handHi.length);
+            System.arraycopy(other.trickCards, 0, trickCards, 0, trickCards.length);
+            System.arraycopy(other.scores, 0, scores, 0, scores.length);
+            System.arraycopy(other.roundWins, 0, roundWins, 0, roundWins.length);
+            leadCard = other.leadCard;
+            currentSeat = other.currentSeat;
+            trickNumber = other.trickNumber;
+            cardsLeft = other.cardsLeft;
+            rounds = other.rounds;
+            moves = other.moves;
+        }
+    }
+
+    private final int numPlayers;
+    private final long seed;
+    private final GoBoomCardAtlas atlas;
+
+    // Owned by the bot thread
+    private final GoBoomEngine engine;
+    private final GoBoomEngine.Strategy[] bots;
+    private final int[] roundWins;
+
+    // Handed from the bot thread to the FX thread
+    private final Object snapshotLock = new Object();
+    private final Snapshot shared;
+    private volatile boolean snapshotWanted = true;
+    private volatile boolean running;
+    private volatile int movesPerSecond = 20;
+    private Thread botThread;
+
+    // Owned by the FX thread
+    private final Snapshot frame;
+    private final Canvas canvas = new Canvas(WIDTH, HEIGHT);
+    private final double[] seatX;
+    private final double[] seatY;
+    private final int[] flyingCards;
+    private final long[] flightStarts;
+    private long lastRateTime;
+    private long lastRateMoves;
+    private double shownMovesPerSecond;
+    private double frameMillis;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            render(now);
+        }
+    };
+
+    public GoBoomCanvasView(int numPlayers, int numDecks, GoBoomCardAtlas atlas, long seed) {
+        this.numPlayers = numPlayers;
+        this.seed = seed;
+        this.atlas = atlas;
+
+        engine = new GoBoomEngine(numPlayers, numDecks);
+        bots = new GoBoomEngine.Strategy[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            bots[i] = GoBoomBots.randomCard(seed + i);
+        }
+        roundWins = new int[numPlayers];
+        shared = new Snapshot(numPlayers);
+        frame = new Snapshot(numPlayers);
+
+        // Seats sit on an ellipse around the center pile, seat 0 at the bottom
+        seatX = new double[numPlayers];
+        seatY = new double[numPlayers];
+        for (int seat = 0; seat < numPlayers; seat++) {
+            double angle = Math.PI / 2 + 2 * Math.PI * seat / numPlayers;
+            seatX[seat] = WIDTH / 2 + Math.cos(angle) * (WIDTH / 2 - 150);
+            seatY[seat] = HEIGHT / 2 + Math.sin(angle) * (HEIGHT / 2 - 80);
+        }
+        flyingCards = new int[numPlayers];
+        flightStarts = new long[numPlayers];
+        Arrays.fill(flyingCards, -1);
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Moves per second the bots play at, or 0 to play as fast as they can.
+     */
+    public void setMovesPerSecond(int movesPerSecond) {
+        this.movesPerSecond = movesPerSecond;
+    }
+
+    /**
+     * Opens the view in its own window with a speed slider. Closing the window stops the bots.
+     */
+    public Stage show() {
+        Label speedLabel = new Label();
+        Slider speedSlider = new Slider(0, MAX_SPEED_EXPONENT, Math.log10(movesPerSecond));
+        speedSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            double exponent = newValue.doubleValue();
+            setMovesPerSecond(exponent >= MAX_SPEED_EXPONENT ? 0 : (int) Math.round(Math.pow(10, exponent)));
+            speedLabel.setText(movesPerSecond == 0 ? "Unlimited" : movesPerSecond + " moves/s");
+        });
+        speedLabel.setText(movesPerSecond + " moves/s");
+
+        HBox speedPanel = new HBox(10, new Label("Speed:"), speedSlider, speedLabel);
+        speedPanel.setPadding(new Insets(5));
+        BorderPane layout = new BorderPane(canvas);
+        layout.setBottom(speedPanel);
+
+        Stage stage = new Stage();
+        stage.setTitle("Go Boom - bots");
+        stage.setScene(new Scene(layout));
+        stage.setOnHidden(event -> stop());
+        stage.show();
+        start();
+        return stage;
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        botThread = new Thread(this::playBots, "canvas-bots");
+        botThread.setDaemon(true);
+        botThread.start();
+        timer.start();
+    }
+
+    public void stop() {
+        running = false;
+        timer.stop();
+        if (botThread != null) {
+            botThread.interrupt();
+            botThread = null;
+        }
+    }
+
+    private void playBots() {
+        int rounds = 0;
+        long moves = 0;
+        long nextMoveTime = System.nanoTime();
+        engine.newRound(GoBoomEngine.mix(seed));
+
+        while (running) {
+            if (engine.isRoundOver()) {
+                roundWins[engine.getRoundWinner()]++;
+                rounds++;
+                engine.newRound(GoBoomEngine.mix(seed + rounds));
+            }
+            engine.step(bots);
+            moves++;
+
+            if (snapshotWanted) {
+                synchronized (snapshotLock) {
+                    shared.copyFrom(engine, roundWins, rounds, moves);
+                }
+                snapshotWanted = false;
+            }
+
+            int rate = movesPerSecond;
+            if (rate > 0) {
+                long now = System.nanoTime();
+                // Don't try to catch up after a speed change or a long pause
+                nextMoveTime = Math.max(nextMoveTime + 1_000_000_000L / rate, now - 100_000_000L);
+                if (nextMoveTime > now) {
+                    LockSupport.parkNanos(nextMoveTime - now);
+                }
+            }
+        }
+    }
+
+    private void render(long now) {
+        long renderStart = System.nanoTime();
+        if (!snapshotWanted) {
+            synchronized (snapshotLock) {
+                frame.copyFrom(shared);
+            }
+            snapshotWanted = true;
+        }
+        updateRate(now);
+
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(Color.DARKGREEN);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+
+        for (int seat = 0; seat < numPlayers; seat++) {
+            drawHand(g, seat);
+        }
+        if (frame.leadCard >= 0) {
+            drawCard(g, frame.leadCard, WIDTH / 2 - GoBoomCardAtlas.CARD_WIDTH / 2,
+                    HEIGHT / 2 - GoBoomCardAtlas.CARD_HEIGHT / 2, GoBoomCardAtlas.CARD_WIDTH, GoBoomCardAtlas.CARD_HEIGHT);
+        }
+        for (int seat = 0; seat < numPlayers; seat++) {
+            drawTrickCard(g, seat, now);
+        }
+        drawText(g);
+
+        frameMillis = frameMillis * 0.95 + (System.nanoTime() - renderStart) / 1e6 * 0.05;
+    }
+
+    private void updateRate(long now) {
+        if (lastRateTime == 0) {
+            lastRateTime = now;
+            lastRateMoves = frame.moves;
+        } else if (now - lastRateTime >= 500_000_000L) {
+            shownMovesPerSecond = (frame.moves - lastRateMoves) * 1e9 / (now - lastRateTime);
+            lastRateTime = now;
+            lastRateMoves = frame.moves;
+        }
+    }
+
+    /**
+     * Fans the seat's hand out around its position, squeezing the cards together when the
+     * hand is big. Copies of a card are drawn once per copy.
+     */
+    private void drawHand(GraphicsContext g, int seat) {
+        long lo = frame.handLo[seat];
+        long hi = frame.handHi[seat];
+        int size = Long.bitCount(lo) + 2 * Long.bitCount(hi);
+        if (size == 0) {
+            return;
+        }
+        double step = Math.min(HAND_CARD_WIDTH * 0.6, (MAX_HAND_WIDTH - HAND_CARD_WIDTH) / Math.max(1, size - 1));
+        double x = seatX[seat] - (step * (size - 1) + HAND_CARD_WIDTH) / 2;
+        double y = seatY[seat] - HAND_CARD_HEIGHT / 2;
+
+        for (long cards = lo | hi; cards != 0; cards &= cards - 1) {
+            int card = Long.numberOfTrailingZeros(cards);
+            int copies = (int) ((lo >>> card) & 1) + 2 * (int) ((hi >>> card) & 1);
+            for (int i = 0; i < copies; i++) {
+                drawCard(g, card, x, y, HAND_CARD_WIDTH, HAND_CARD_HEIGHT);
+                x += step;
+            }
+        }
+    }
+
+    /**
+     * Draws the seat's card in the trick, on its way from the seat to the center while it is
+     * still new.
+     */
+    private void drawTrickCard(GraphicsContext g, int seat, long now) {
+        int card = frame.trickCards[seat];
+        if (card != flyingCards[seat]) {
+            flyingCards[seat] = card;
+            flightStarts[seat] = now;
+        }
+        if (card < 0) {
+            return;
+        }
+
+        double t = Math.min(1.0, (double) (now - flightStarts[seat]) / FLIGHT_NANOS);
+        t = t * (2 - t);
+        double targetX = WIDTH / 2 + (seatX[seat] - WIDTH / 2) * 0.4;
+        double targetY = HEIGHT / 2 + (seatY[seat] - HEIGHT / 2) * 0.4;
+        double x = seatX[seat] + (targetX - seatX[seat]) * t;
+        double y = seatY[seat] + (targetY - seatY[seat]) * t;
+        double width = HAND_CARD_WIDTH + (GoBoomCardAtlas.CARD_WIDTH - HAND_CARD_WIDTH) * t;
+        double height = HAND_CARD_HEIGHT + (GoBoomCardAtlas.CARD_HEIGHT - HAND_CARD_HEIGHT) * t;
+        drawCard(g, card, x - width / 2, y - height / 2, width, height);
+    }
+
+    private void drawText(GraphicsContext g) {
+        g.setFill(Color.WHITE);
+        g.setFont(Font.font("System", 14));
+        g.setTextAlign(TextAlignment.LEFT);
+        g.fillText(String.format("Round %d   Trick %d   Deck %d   %.0f moves/s   %.2f ms/frame",
+                frame.rounds + 1, frame.trickNumber, frame.cardsLeft, shownMovesPerSecond, frameMillis), 10, 20);
+
+        g.setTextAlign(TextAlignment.CENTER);
+        for (int seat = 0; seat < numPlayers; seat++) {
+            g.setFill(seat == frame.currentSeat ? Color.GOLD : Color.WHITE);
+            g.fillText("Player " + (seat + 1) + "  tricks " + frame.scores[seat] + "  rounds " + frame.roundWins[seat],
+                    seatX[seat], seatY[seat] + HAND_CARD_HEIGHT / 2 + 18);
+        }
+    }
+
+    private void drawCard(GraphicsContext g, int card, double x, double y, double width, double height) {
+        Rectangle2D cell = atlas.getViewport(card);
+        g.drawImage(atlas.getImage(), cell.getMinX(), cell.getMinY(), cell.getWidth(), cell.getHeight(),
+                x, y, width, height);
+    }
+}
@@ -0,0 +1,126 @@
+import javafx.geometry.Rectangle2D;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import java.io.File;
+import java.util.ArrayDeque;
+
+/**
+ * All card faces and the card back in one sprite-atlas image, drawn with pooled ImageViews.
+ *
+ * The atlas has a column per rank and a row per suit, in GoBoomEngine card id order, plus a
+ * sixth row whose first cell is the card back. If cards.png exists in the working directory
+ * it is used as the atlas, otherwise the faces are drawn once on a Canvas and snapshotted.
+ * Showing a card only moves an ImageView's viewport to one of the precomputed cells, so
+ * redrawing hands does not create any objects.
+ */
+public class GoBoomCardAtlas {
+    public static final double CARD_WIDTH = 80;
+    public static final double CARD_HEIGHT = 120;
+    public static final int BACK = GoBoomEngine.NUM_CARDS;
+
+    private static final String ATLAS_FILE = "cards.png";
+    private static final Color[] SUIT_COLORS = {Color.BLACK, Color.CRIMSON, Color.CRIMSON, Color.BLACK};
+    private static final String[] SUIT_SYMBOLS = {"♣", "♦", "♥", "♠"};
+
+    private final Image atlas;
+    private final Rectangle2D[] viewports = new Rectangle2D[GoBoomEngine.NUM_CARDS + 1];
+    private final ArrayDeque<ImageView> pool = new ArrayDeque<>();
+
+    public GoBoomCardAtlas() {
+        File file = new File(ATLAS_FILE);
+        atlas = file.exists() ? new Image(file.toURI().toString()) : drawAtlas();
+
+        for (int card = 0; card < GoBoomEngine.NUM_CARDS; card++) {
+            viewports[card] = new Rectangle2D(GoBoomEngine.rankOf(card) * CARD_WIDTH,
+                    GoBoomEngine.suitOf(card) * CARD_HEIGHT, CARD_WIDTH, CARD_HEIGHT);
+        }
+        viewports[BACK] = new Rectangle2D(0, GoBoomEngine.NUM_SUITS * CARD_HEIGHT, CARD_WIDTH, CARD_HEIGHT);
+    }
+
+    public Image getImage() {
+        return atlas;
+    }
+
+    /**
+     * The atlas cell of a card id, or of the back for BACK.
+     */
+    public Rectangle2D getViewport(int card) {
+        return viewports[card];
+    }
+
+    /**
+     * Takes a view from the pool, or makes one if the pool is empty. Give it back with
+     * release() when the card leaves the table.
+     */
+    public ImageView acquire() {
+        ImageView view = pool.poll();
+        if (view == null) {
+            view = new ImageView(atlas);
+            view.setPreserveRatio(true);
+            view.setSmooth(true);
+        }
+        view.setVisible(true);
+        return view;
+    }
+
+    public void release(ImageView view) {
+        view.setVisible(false);
+        view.setTranslateY(0);
+        pool.push(view);
+    }
+
+    /**
+     * Points the view at a card's face, or at the shared back if it is face down.
+     */
+    public void show(ImageView view, int card, boolean faceUp) {
+        view.setViewport(viewports[faceUp ? card : BACK]);
+    }
+
+    private static Image drawAtlas() {
+        Canvas canvas = new Canvas(GoBoomEngine.NUM_RANKS * CARD_WIDTH, (GoBoomEngine.NUM_SUITS + 1) * CARD_HEIGHT);
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+
+        for (int card = 0; card < GoBoomEngine.NUM_CARDS; card++) {
+            int suit = GoBoomEngine.suitOf(card);
+            double x = GoBoomEngine.rankOf(card) * CARD_WIDTH;
+            double y = suit * CARD_HEIGHT;
+            drawBlank(g, x, y, Color.WHITE);
+
+            g.setFill(SUIT_COLORS[suit]);
+            g.setFont(Font.font("System", FontWeight.BOLD, 18));
+            g.fillText(GoBoomEngine.RANKS[GoBoomEngine.rankOf(card)], x + 16, y + 16);
+            g.fillText(SUIT_SYMBOLS[suit], x + 16, y + 36);
+            g.setFont(Font.font("System", 40));
+            g.fillText(SUIT_SYMBOLS[suit], x + CARD_WIDTH / 2, y + CARD_HEIGHT / 2 + 6);
+        }
+
+        double backY = GoBoomEngine.NUM_SUITS * CARD_HEIGHT;
+        drawBlank(g, 0, backY, Color.NAVY);
+        g.setStroke(Color.LIGHTSTEELBLUE);
+        for (double offset = 8; offset < CARD_WIDTH - 8; offset += 8) {
+            g.strokeLine(offset, backY + 8, offset, backY + CARD_HEIGHT - 8);
+        }
+
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        return canvas.snapshot(parameters, null);
+    }
+
+    private static void drawBlank(GraphicsContext g, double x, double y, Color fill) {
+        g.setFill(fill);
+        g.fillRoundRect(x + 1, y + 1, CARD_WIDTH - 2, CARD_HEIGHT - 2, 10, 10);
+        g.setStroke(Color.BLACK);
+        g.strokeRoundRect(x + 1, y + 1, CARD_WIDTH - 2, CARD_HEIGHT - 2, 10, 10);
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Parses Go Boom console commands without creating any objects.
+ *
+ * A line is read into one reusable char buffer and decoded in place: a single letter is a
+ * command (d, s, x, r, u, y), anything longer is a card such as "h10" or "sA", turned
+ * straight into a GoBoomEngine card id through small lookup tables. Letters are
+ * case-insensitive and surrounding whitespace is ignored. parse() returns a command code or a
+ * negative error code instead of throwing, so a typo costs a couple of table lookups. One
+ * parser per input stream; it is not thread-safe.
+ */
+public final class GoBoomCommandParser {
+    public static final int MAX_LINE = 256;
+
+    public static final int PLAY = 0;
+    public static final int DRAW = 1;
+    public static final int SAVE = 2;
+    public static final int EXIT = 3;
+    public static final int RESET = 4;
+    public static final int UNDO = 5;
+    public static final int REDO = 6;
+
+    public static final int ERROR_EMPTY = -1;
+    public static final int ERROR_UNKNOWN_COMMAND = -2;
+    public static final int ERROR_BAD_SUIT = -3;
+    public static final int ERROR_BAD_RANK = -4;
+    public static final int ERROR_TOO_LONG = -5;
+
+    private static final int TEN = 8;
+    private static final byte[] COMMAND_CODES = new byte[128];
+    private static final byte[] SUIT_CODES = new byte[128];
+    private static final byte[] RANK_CODES = new byte[128];
+
+    static {
+        Arrays.fill(COMMAND_CODES, (byte) -1);
+        Arrays.fill(SUIT_CODES, (byte) -1);
+        Arrays.fill(RANK_CODES, (byte) -1);
+        setBothCases(COMMAND_CODES, 'd', DRAW);
+        setBothCases(COMMAND_CODES, 's', SAVE);
+        setBothCases(COMMAND_CODES, 'x', EXIT);
+        setBothCases(COMMAND_CODES, 'r', RESET);
+        setBothCases(COMMAND_CODES, 'u', UNDO);
+        setBothCases(COMMAND_CODES, 'y', REDO);
+        for (int suit = 0; suit < GoBoomEngine.NUM_SUITS; suit++) {
+            setBothCases(SUIT_CODES, GoBoomEngine.SUITS[suit].charAt(0), suit);
+        }
+        for (int rank = 0; rank < GoBoomEngine.NUM_RANKS; rank++) {
+            // "10" is the only two-character rank and is handled in parse()
+            if (rank != TEN) {
+                setBothCases(RANK_CODES, GoBoomEngine.RANKS[rank].charAt(0), rank);
+            }
+        }
+    }
+
+    private final char[] line = new char[MAX_LINE];
+    private int length;
+    private boolean tooLong;
+    private int card = -1;
+
+    private static void setBothCases(byte[] table, char c, int code) {
+        table[Character.toLowerCase(c)] = (byte) code;
+        table[Character.toUpperCase(c)] = (byte) code;
+    }
+
+    private static int lookup(byte[] table, char c) {
+        return c < table.length ? table[c] : -1;
+    }
+
+    /**
+     * Reads the next line into the buffer. Characters past MAX_LINE are read and dropped, and
+     * the line then parses as ERROR_TOO_LONG. Returns false at the end of the input.
+     */
+    public boolean readLine(Reader in) throws IOException {
+        int count = 0;
+        boolean overflow = false;
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (count < line.length) {
+                line[count++] = (char) c;
+            } else {
+                overflow = true;
+            }
+        }
+        if (c < 0 && count == 0) {
+            return false;
+        }
+        length = count;
+        tooLong = overflow;
+        return true;
+    }
+
+    /**
+     * Parses text as if it had been read as a line, for commands that arrive as Strings.
+     */
+    public int parse(CharSequence text) {
+        int count = Math.min(text.length(), line.length);
+        for (int i = 0; i < count; i++) {
+            line[i] = text.charAt(i);
+        }
+        length = count;
+        tooLong = text.length() > line.length;
+        return parse();
+    }
+
+    /**
+     * Parses the current line. For PLAY the card id is available from getCard().
+     */
+    public int parse() {
+        card = -1;
+        if (tooLong) {
+            return ERROR_TOO_LONG;
+        }
+        int start = firstNonBlank();
+        int end = lastNonBlank() + 1;
+        int count = end - start;
+        if (count <= 0) {
+            return ERROR_EMPTY;
+        }
+
+        if (count == 1) {
+            int command = lookup(COMMAND_CODES, line[start]);
+            return command >= 0 ? command : ERROR_UNKNOWN_COMMAND;
+        }
+
+        int suit = lookup(SUIT_CODES, line[start]);
+        if (suit < 0) {
+            return ERROR_BAD_SUIT;
+        }
+        int rank = -1;
+        if (count == 2) {
+            rank = lookup(RANK_CODES, line[start + 1]);
+        } else if (count == 3 && line[start + 1] == '1' && line[start + 2] == '0') {
+            rank = TEN;
+        }
+        if (rank < 0) {
+            return ERROR_BAD_RANK;
+        }
+        card = suit * GoBoomEngine.NUM_RANKS + rank;
+        return PLAY;
+    }
+
+    /**
+     * The card of the last PLAY, or -1.
+     */
+    public int getCard() {
+        return card;
+    }
+
+    /**
+     * Whether the current line, ignoring case and surrounding whitespace, is the word.
+     */
+    public boolean lineEquals(String word) {
+        int start = firstNonBlank();
+        int end = lastNonBlank() + 1;
+        if (tooLong || end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(line[start + i]) != Character.toLowerCase(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int firstNonBlank() {
+        int i = 0;
+        while (i < length && line[i] <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private int lastNonBlank() {
+        int i = length - 1;
+        while (i >= 0 && line[i] <= ' ') {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * A message for the player explaining an error code.
+     */
+    public static String describe(int error) {
+        switch (error) {
+            case ERROR_EMPTY:
+                return "Please enter a card (like h10 or sA) or a command (d, s, x, r, u, y).";
+            case ERROR_UNKNOWN_COMMAND:
+                return "Unknown command. Use d to draw, s to save, x to exit, r to reset, u to undo or y to redo.";
+            case ERROR_BAD_SUIT:
+                return "Invalid card: the suit must be c, d, h or s.";
+            case ERROR_BAD_RANK:
+                return "Invalid card: the rank must be 2-10, J, Q, K or A.";
+            case ERROR_TOO_LONG:
+                return "That line is too long.";
+            default:
+                return "Invalid input.";
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Exact solver for Go Boom endgames. Once the deck is empty nothing is hidden or random any
+ * more, so the rest of the round can be searched completely.
+ *
+ * Every seat is assumed to play for its own win (max^n search): a seat picks a move that
+ * makes it the round winner if one exists, which also cuts off the remaining moves at that
+ * node, and otherwise keeps the first move in card order. Results are memoized on the hands,
+ * the trick in progress and the seat to move (GoBoomEngine.turnState()), so transpositions
+ * are only searched once.
+ */
+public class GoBoomEndgameSolver {
+    public static final int DEFAULT_THRESHOLD = 16;
+    private static final int DEFAULT_TABLE_BITS = 16;
+
+    /**
+     * Outcome of one solve() call.
+     */
+    public static class Result {
+        public final int winner;
+        public final int bestMove;
+        public final long nodes;
+        public final long nanos;
+
+        Result(int winner, int bestMove, long nodes, long nanos) {
+            this.winner = winner;
+            this.bestMove = bestMove;
+            this.nodes = nodes;
+            this.nanos = nanos;
+        }
+
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+        }
+    }
+
+    private final GoBoomEngine work;
+    private final int numPlayers;
+    private final int keyWidth;
+    private final int tableMask;
+    // Open-addressing memo table: keyWidth longs per slot, and the winner + 1 (0 = empty slot)
+    private final long[] keys;
+    private final byte[] winners;
+    private final long[] key;
+    private int used;
+    private long nodes;
+
+    public GoBoomEndgameSolver(int numPlayers, int numDecks) {
+        this(numPlayers, numDecks, DEFAULT_TABLE_BITS);
+    }
+
+    public GoBoomEndgameSolver(int numPlayers, int numDecks, int tableBits) {
+        work = new GoBoomEngine(numPlayers, numDecks);
+        this.numPlayers = numPlayers;
+        keyWidth = 2 * numPlayers + 1;
+        tableMask = (1 << tableBits) - 1;
+        keys = new long[(tableMask + 1) * keyWidth];
+        winners = new byte[tableMask + 1];
+        key = new long[keyWidth];
+    }
+
+    /**
+     * True once the deck is empty and at most threshold cards are left in all hands.
+     */
+    public static boolean canSolve(GoBoomEngine engine, int threshold) {
+        if (engine.isRoundOver() || engine.getCardsLeftInDeck() > 0) {
+            return false;
+        }
+        int cards = 0;
+        for (int seat = 0; seat < engine.getNumPlayers(); seat++) {
+            cards += engine.getHandSize(seat);
+        }
+        return cards <= threshold;
+    }
+
+    /**
+     * Solves the position of the given engine, which is left untouched. The memo table is
+     * kept between calls, so solving successive positions of the same round gets cheaper.
+     */
+    public Result solve(GoBoomEngine engine) {
+        if (engine.getCardsLeftInDeck() > 0) {
+            throw new IllegalArgumentException("The endgame solver needs an empty deck");
+        }
+        long start = System.nanoTime();
+        work.copyFrom(engine);
+        nodes = 0;
+
+        int bestMove = -1;
+        int winner;
+        if (work.isRoundOver()) {
+            winner = work.getRoundWinner();
+        } else {
+            int seat = work.getCurrentSeat();
+            long legal = work.legalCards(seat);
+            if (legal == 0) {
+                bestMove = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PASS, 0);
+                winner = searchMove(bestMove);
+            } else {
+                winner = -1;
+                for (long cards = legal; cards != 0; cards &= cards - 1) {
+                    int move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PLAY, Long.numberOfTrailingZeros(cards));
+                    int result = searchMove(move);
+                    if (winner < 0 || result == seat) {
+                        winner = result;
+                        bestMove = move;
+                    }
+                    if (result == seat) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new Result(winner, bestMove, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * A strategy that plays the solved move whenever canSolve() holds and asks the fallback
+     * otherwise. Like the other bots it must not be shared between threads.
+     */
+    public GoBoomEngine.Strategy asStrategy(GoBoomEngine.Strategy fallback, int threshold) {
+        return (engine, seat, legalCards) -> {
+            if (canSolve(engine, threshold)) {
+                Result result = solve(engine);
+                if (GoBoomEngine.moveType(result.bestMove) == GoBoomEngine.MOVE_PLAY) {
+                    return GoBoomEngine.moveCard(result.bestMove);
+                }
+            }
+            return fallback.chooseCard(engine, seat, legalCards);
+        };
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(winners, (byte) 0);
+        used = 0;
+    }
+
+    private int searchMove(int move) {
+        long before = work.turnState();
+        work.applyMove(move);
+        int winner = search();
+        work.undoMove(move, before);
+        return winner;
+    }
+
+    private int search() {
+        nodes++;
+        if (work.isRoundOver()) {
+            return work.getRoundWinner();
+        }
+
+        int slot = lookup();
+        if (winners[slot] != 0) {
+            return winners[slot] - 1;
+        }
+
+        int seat = work.getCurrentSeat();
+        long legal = work.legalCards(seat);
+        int winner;
+        if (legal == 0) {
+            winner = searchMove(GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PASS, 0));
+        } else {
+            winner = -1;
+            for (long cards = legal; cards != 0; cards &= cards - 1) {
+                int result = searchMove(GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PLAY, Long.numberOfTrailingZeros(cards)));
+                if (winner < 0) {
+                    winner = result;
+                }
+                if (result == seat) {
+                    winner = seat;
+                    break;
+                }
+            }
+        }
+
+        store(winner);
+        return winner;
+    }
+
+    /**
+     * Builds the key of the current position and returns its slot: either the slot holding
+     * the same key or the empty slot where it should go.
+     */
+    private int lookup() {
+        for (int seat = 0; seat < numPlayers; seat++) {
+            key[2 * seat] = work.getHandLo(seat);
+            key[2 * seat + 1] = work.getHandHi(seat);
+        }
+        key[keyWidth - 1] = work.turnState();
+
+        long hash = 0;
+        for (long part : key) {
+            hash = GoBoomEngine.mix(hash ^ part);
+        }
+
+        int slot = (int) hash & tableMask;
+        while (winners[slot] != 0) {
+            if (matches(slot)) {
+                return slot;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return slot;
+    }
+
+    private boolean matches(int slot) {
+        int base = slot * keyWidth;
+        for (int i = 0; i < keyWidth; i++) {
+            if (keys[base + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void store(int winner) {
+        // The key may have been overwritten by child searches, so rebuild it
+        int slot = lookup();
+        if (winners[slot] != 0) {
+            return;
+        }
+        if (used > tableMask - (tableMask >> 2)) {
+            // Table is 75% full: start over rather than let the probe chains grow
+            clear();
+            slot = lookup();
+        }
+        System.arraycopy(key, 0, keys, slot * keyWidth, keyWidth);
+        winners[slot] = (byte) (winner + 1);
+        used++;
+    }
+
+    /**
+     * Plays random rounds until an endgame with at most [threshold] cards is reached, solves
+     * it and prints timing.
+     *
+     * Usage: java GoBoomEndgameSolver [positions] [threshold] [players] [decks]
+     */
+    public static void main(String[] args) {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threshold = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_THRESHOLD;
+        int numPlayers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int numDecks = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        GoBoomEngine engine = new GoBoomEngine(numPlayers, numDecks);
+        GoBoomEndgameSolver solver = new GoBoomEndgameSolver(numPlayers, numDecks);
+        GoBoomEngine.Strategy[] bots = new GoBoomEngine.Strategy[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            bots[i] = GoBoomBots.randomCard(i);
+        }
+
+        int solved = 0;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (long seed = 0; solved < positions; seed++) {
+            engine.newRound(seed);
+            while (!engine.isRoundOver() && !canSolve(engine, threshold)) {
+                engine.step(bots);
+            }
+            if (engine.isRoundOver()) {
+                continue;
+            }
+            solver.clear();
+            Result result = solver.solve(engine);
+            solved++;
+            totalNodes += result.nodes;
+            totalNanos += result.nanos;
+            maxNanos = Math.max(maxNanos, result.nanos);
+        }
+
+        System.out.printf("Solved %d endgames (<= %d cards): avg %.3f ms, max %.3f ms, %.0f nodes/s%n",
+                solved, threshold, totalNanos / 1e6 / solved, maxNanos / 1e6, totalNodes * 1e9 / totalNanos);
+    }
+}
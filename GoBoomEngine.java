@@ -0,0 +1,780 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Compact Go Boom engine used for bulk simulation. It keeps the whole table in primitive
+ * fields so a round can be played without allocating. Both it and GoBoomGame deal 7 cards
+ * round-robin, turn up a first lead card that picks the first player, and give each trick to
+ * the highest card of the lead suit, or to the first card played if nobody followed suit.
+ * The engine plays the stricter card-game rules, which GoBoomGame's console commands do not
+ * enforce:
+ * <ul>
+ *   <li>a card must follow the suit or rank of the lead card; GoBoomGame accepts any card
+ *       in the hand,</li>
+ *   <li>a seat draws only when it has no playable card and keeps its turn until it can play;
+ *       in GoBoomGame d is allowed at any time and passes the turn on,</li>
+ *   <li>once the deck is empty a seat passes only when it cannot play; GoBoomGame skips a
+ *       player after every command while the deck is empty,</li>
+ *   <li>the first lead card only sets the lead suit; in GoBoomGame it also lies in the
+ *       center and goes to the discard pile with the first trick,</li>
+ *   <li>a round ends when a hand is empty or every seat passes a trick, won by the seat that
+ *       emptied its hand or holds the fewest cards; GoBoomGame plays on until a score
+ *       reaches 10,</li>
+ *   <li>the shuffle comes from the round's seed, so the same seed does not deal the same
+ *       cards as GoBoomGame's Random.</li>
+ * </ul>
+ *
+ * Cards are ids 0-51: suit * 13 + rank, using the same suit and rank order as GoBoomGame.
+ * The table supports 2-8 players and 1-3 decks. A hand stores how many copies of each card
+ * it holds in two bits spread over a pair of longs: handLo holds bit 0 of every count and
+ * handHi bit 1, so "which cards are held" is just handLo | handHi and legality checks stay a
+ * couple of mask operations no matter how many decks are in play.
+ */
+public class GoBoomEngine {
+    public static final String[] RANKS = {"2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K", "A"};
+    public static final String[] SUITS = {"c", "d", "h", "s"};
+
+    public static final int NUM_RANKS = 13;
+    public static final int NUM_SUITS = 4;
+    public static final int NUM_CARDS = 52;
+    public static final int MIN_PLAYERS = 2;
+    public static final int MAX_PLAYERS = 8;
+    public static final int MAX_DECKS = 3;
+    public static final int HAND_SIZE = 7;
+
+    // Move encoding: the tag in bits 6-7, the card id in bits 0-5
+    public static final int MOVE_PLAY = 0;
+    public static final int MOVE_DRAW = 1;
+    public static final int MOVE_PASS = 2;
+
+    private static final long SUIT_MASK = (1L << NUM_RANKS) - 1;
+    private static final long[] RANK_MASKS = new long[NUM_RANKS];
+
+    static {
+        for (int rank = 0; rank < NUM_RANKS; rank++) {
+            for (int suit = 0; suit < NUM_SUITS; suit++) {
+                RANK_MASKS[rank] |= 1L << (suit * NUM_RANKS + rank);
+            }
+        }
+    }
+
+    /**
+     * Receives every state change of a round. All methods default to doing nothing so
+     * listeners only override what they need.
+     */
+    public interface Listener {
+        default void cardPlayed(int seat, int card) {
+        }
+
+        default void cardDrawn(int seat, int card) {
+        }
+
+        default void turnPassed(int seat) {
+        }
+
+        default void trickWon(int seat, int card, int trickNumber) {
+        }
+
+        default void roundOver(int winner, int trickCount) {
+        }
+    }
+
+    /**
+     * Chooses which card a seat plays. legalCards is never empty and the returned id must be
+     * one of its bits.
+     */
+    public interface Strategy {
+        int chooseCard(GoBoomEngine engine, int seat, long legalCards);
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final int numPlayers;
+    private final int numDecks;
+    private final byte[] deck;
+    private final long[] handLo;
+    private final long[] handHi;
+    private final int[] trickCards;
+    private final int[] scores;
+
+    private int deckPos;
+    private int firstLeadCard;
+    private int firstSeat;
+    private int leadCard;
+    private int trickStartSeat;
+    private int currentSeat;
+    private int turnsInTrick;
+    private int trickNumber;
+    private int roundWinner;
+    private boolean roundOver;
+    private long rngState;
+    private Listener listener = NO_LISTENER;
+
+    public GoBoomEngine() {
+        this(4, 1);
+    }
+
+    public GoBoomEngine(int numPlayers, int numDecks) {
+        checkTableSize(numPlayers, numDecks);
+
+        this.numPlayers = numPlayers;
+        this.numDecks = numDecks;
+        deck = new byte[numDecks * NUM_CARDS];
+        handLo = new long[numPlayers];
+        handHi = new long[numPlayers];
+        trickCards = new int[numPlayers];
+        scores = new int[numPlayers];
+        roundOver = true;
+    }
+
+    /**
+     * Throws IllegalArgumentException unless a table of this size can be dealt.
+     */
+    public static void checkTableSize(int numPlayers, int numDecks) {
+        if (numPlayers < MIN_PLAYERS || numPlayers > MAX_PLAYERS) {
+            throw new IllegalArgumentException("Player count must be between " + MIN_PLAYERS + " and " + MAX_PLAYERS);
+        }
+        if (numDecks < 1 || numDecks > MAX_DECKS) {
+            throw new IllegalArgumentException("Deck count must be between 1 and " + MAX_DECKS);
+        }
+        if (numPlayers * HAND_SIZE + 1 > numDecks * NUM_CARDS) {
+            throw new IllegalArgumentException("Not enough cards to deal " + numPlayers + " hands from " + numDecks + " deck(s)");
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    /**
+     * Shuffles, deals 7 cards to each player, turns up the first lead card and picks the first
+     * player from its rank. The same seed always produces the same round.
+     */
+    public void newRound(long seed) {
+        rngState = seed;
+        for (int i = 0; i < deck.length; i++) {
+            deck[i] = (byte) (i % NUM_CARDS);
+        }
+        for (int i = deck.length - 1; i > 0; i--) {
+            int j = (int) ((nextRandom() >>> 1) % (i + 1));
+            byte temp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = temp;
+        }
+
+        deckPos = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            handLo[i] = 0L;
+            handHi[i] = 0L;
+            scores[i] = 0;
+            trickCards[i] = -1;
+        }
+        for (int i = 0; i < HAND_SIZE; i++) {
+            for (int j = 0; j < numPlayers; j++) {
+                addCard(j, deck[deckPos++]);
+            }
+        }
+
+        firstLeadCard = deck[deckPos++];
+        firstSeat = firstPlayerFor(firstLeadCard, numPlayers);
+        leadCard = firstLeadCard;
+        trickStartSeat = firstSeat;
+        currentSeat = firstSeat;
+        turnsInTrick = 0;
+        trickNumber = 1;
+        roundWinner = -1;
+        roundOver = false;
+    }
+
+    /**
+     * Performs one turn for the current seat: play a legal card, otherwise draw one card,
+     * otherwise pass. Returns the encoded move, or -1 if the round is already over.
+     */
+    public int step(Strategy[] strategies) {
+        if (roundOver) {
+            return -1;
+        }
+        int move = chooseMove(strategies);
+        applyMove(move);
+        return move;
+    }
+
+    /**
+     * The move step() would make now, without making it.
+     */
+    public int chooseMove(Strategy[] strategies) {
+        int seat = currentSeat;
+        long legal = legalCards(seat);
+        if (legal != 0) {
+            int card = strategies[seat].chooseCard(this, seat, legal);
+            if (card < 0 || card >= NUM_CARDS || (legal & (1L << card)) == 0) {
+                throw new IllegalStateException("Strategy for seat " + seat + " chose an illegal card " + card);
+            }
+            return encodeMove(MOVE_PLAY, card);
+        }
+        if (deckPos < deck.length) {
+            return encodeMove(MOVE_DRAW, deck[deckPos]);
+        }
+        return encodeMove(MOVE_PASS, 0);
+    }
+
+    /**
+     * Plays the round to the end and returns the winning seat.
+     */
+    public int playRound(Strategy[] strategies) {
+        while (!roundOver) {
+            step(strategies);
+        }
+        return roundWinner;
+    }
+
+    /**
+     * Applies one move for the current seat. A play must be legal, a draw is only allowed
+     * when the seat has no legal card (its card field is ignored, the top of the deck is
+     * taken), and a pass only when the deck is empty as well.
+     */
+    public void applyMove(int move) {
+        if (roundOver) {
+            throw new IllegalStateException("The round is over");
+        }
+
+        int seat = currentSeat;
+        long legal = legalCards(seat);
+        switch (moveType(move)) {
+            case MOVE_PLAY:
+                int card = moveCard(move);
+                if (card >= NUM_CARDS || (legal & (1L << card)) == 0) {
+                    throw new IllegalArgumentException(cardName(card % NUM_CARDS) + " is not playable for seat " + seat);
+                }
+                play(seat, card);
+                break;
+            case MOVE_DRAW:
+                if (legal != 0 || deckPos == deck.length) {
+                    throw new IllegalArgumentException("Seat " + seat + " cannot draw now");
+                }
+                int drawn = deck[deckPos++];
+                addCard(seat, drawn);
+                listener.cardDrawn(seat, drawn);
+                break;
+            case MOVE_PASS:
+                if (legal != 0 || deckPos < deck.length) {
+                    throw new IllegalArgumentException("Seat " + seat + " cannot pass now");
+                }
+                listener.turnPassed(seat);
+                endTurn(seat);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown move " + move);
+        }
+    }
+
+    /**
+     * Reverts a move made by applyMove(). before must be the turnState() taken just before
+     * the move was applied, and moves must be undone in reverse order.
+     */
+    public void undoMove(int move, long before) {
+        restoreTurnState(before);
+        int seat = currentSeat;
+        int type = moveType(move);
+
+        if (type == MOVE_DRAW) {
+            deckPos--;
+            removeCard(seat, deck[deckPos]);
+            return;
+        }
+        if (type == MOVE_PLAY) {
+            addCard(seat, moveCard(move));
+        }
+
+        if (turnsInTrick + 1 == numPlayers) {
+            // The move completed the trick: take back the point and the trick counter
+            if (type == MOVE_PLAY) {
+                trickCards[seat] = moveCard(move);
+            }
+            int winner = trickWinner();
+            trickCards[seat] = -1;
+            if (winner >= 0) {
+                scores[winner]--;
+                if (!roundOver) {
+                    trickNumber--;
+                }
+            }
+            roundOver = false;
+            roundWinner = -1;
+        }
+    }
+
+    /**
+     * Packs the state of the current trick into one long: the card (+1) each seat played in
+     * bits 0-47, six bits per seat, then the lead card (+1), the seat that started the trick,
+     * the current seat and the number of turns taken in the trick.
+     */
+    public long turnState() {
+        long state = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            state |= (long) (trickCards[i] + 1) << (6 * i);
+        }
+        state |= (long) (leadCard + 1) << 48;
+        state |= (long) trickStartSeat << 54;
+        state |= (long) currentSeat << 57;
+        state |= (long) turnsInTrick << 60;
+        return state;
+    }
+
+    private void restoreTurnState(long state) {
+        for (int i = 0; i < numPlayers; i++) {
+            trickCards[i] = (int) ((state >>> (6 * i)) & 0x3F) - 1;
+        }
+        leadCard = (int) ((state >>> 48) & 0x3F) - 1;
+        trickStartSeat = (int) ((state >>> 54) & 0x7);
+        currentSeat = (int) ((state >>> 57) & 0x7);
+        turnsInTrick = (int) ((state >>> 60) & 0xF);
+    }
+
+    /**
+     * Makes this engine an exact copy of another one of the same table size. The listener is
+     * not copied.
+     */
+    public void copyFrom(GoBoomEngine other) {
+        if (other.numPlayers != numPlayers || other.numDecks != numDecks) {
+            throw new IllegalArgumentException("Table sizes differ");
+        }
+        System.arraycopy(other.deck, 0, deck, 0, deck.length);
+        System.arraycopy(other.handLo, 0, handLo, 0, numPlayers);
+        System.arraycopy(other.handHi, 0, handHi, 0, numPlayers);
+        System.arraycopy(other.trickCards, 0, trickCards, 0, numPlayers);
+        System.arraycopy(other.scores, 0, scores, 0, numPlayers);
+        deckPos = other.deckPos;
+        firstLeadCard = other.firstLeadCard;
+        firstSeat = other.firstSeat;
+        leadCard = other.leadCard;
+        trickStartSeat = other.trickStartSeat;
+        currentSeat = other.currentSeat;
+        turnsInTrick = other.turnsInTrick;
+        trickNumber = other.trickNumber;
+        roundWinner = other.roundWinner;
+        roundOver = other.roundOver;
+        rngState = other.rngState;
+    }
+
+    /**
+     * Bytes writeState() takes for this table size.
+     */
+    public int getStateSize() {
+        return deck.length + 21 * numPlayers + 22;
+    }
+
+    /**
+     * Writes the whole table (deck, hands, trick, scores and random state) at the buffer's
+     * position, getStateSize() bytes, so that readState() can restore it exactly.
+     */
+    public void writeState(ByteBuffer out) {
+        out.put(deck);
+        for (int i = 0; i < numPlayers; i++) {
+            out.putLong(handLo[i]).putLong(handHi[i]).put((byte) (trickCards[i] + 1)).putInt(scores[i]);
+        }
+        out.putShort((short) deckPos);
+        out.put((byte) firstLeadCard).put((byte) firstSeat).put((byte) (leadCard + 1));
+        out.put((byte) trickStartSeat).put((byte) currentSeat).put((byte) turnsInTrick);
+        out.putInt(trickNumber);
+        out.put((byte) (roundWinner + 1)).put((byte) (roundOver ? 1 : 0));
+        out.putLong(rngState);
+    }
+
+    /**
+     * Restores a table written by writeState() of an engine with the same table size. The
+     * listener is not told about the change.
+     */
+    public void readState(ByteBuffer in) {
+        in.get(deck);
+        for (int i = 0; i < numPlayers; i++) {
+            handLo[i] = in.getLong();
+            handHi[i] = in.getLong();
+            trickCards[i] = in.get() - 1;
+            scores[i] = in.getInt();
+        }
+        deckPos = in.getShort();
+        firstLeadCard = in.get();
+        firstSeat = in.get();
+        leadCard = in.get() - 1;
+        trickStartSeat = in.get();
+        currentSeat = in.get();
+        turnsInTrick = in.get();
+        trickNumber = in.getInt();
+        roundWinner = in.get() - 1;
+        roundOver = in.get() != 0;
+        rngState = in.getLong();
+    }
+
+    /**
+     * Bytes writeRecord() takes for this table size, rounded up to a multiple of 8.
+     */
+    public int getRecordSize() {
+        int size = 16 * numPlayers + (deck.length - dealtCards()) + 3 * numPlayers + 11;
+        return (size + 7) & ~7;
+    }
+
+    private int dealtCards() {
+        return numPlayers * HAND_SIZE + 1;
+    }
+
+    /**
+     * Writes the round in progress as a fixed-size record at an absolute offset, without
+     * moving the buffer's position. Unlike writeState() it leaves out what play no longer
+     * needs, the cards dealt from the deck and the shuffle state, so a 4-player, 1-deck
+     * table fits in 112 bytes. Only valid between newRound() and the end of the round.
+     */
+    public void writeRecord(ByteBuffer out, int offset) {
+        int pos = offset;
+        for (int i = 0; i < numPlayers; i++) {
+            out.putLong(pos, handLo[i]);
+            out.putLong(pos + 8, handHi[i]);
+            pos += 16;
+        }
+        for (int i = dealtCards(); i < deck.length; i++) {
+            out.put(pos++, deck[i]);
+        }
+        for (int i = 0; i < numPlayers; i++) {
+            out.put(pos++, (byte) (trickCards[i] + 1));
+            out.putShort(pos, (short) scores[i]);
+            pos += 2;
+        }
+        out.put(pos++, (byte) deckPos);
+        out.put(pos++, (byte) firstLeadCard);
+        out.put(pos++, (byte) firstSeat);
+        out.put(pos++, (byte) (leadCard + 1));
+        out.put(pos++, (byte) trickStartSeat);
+        out.put(pos++, (byte) currentSeat);
+        out.put(pos++, (byte) turnsInTrick);
+        out.put(pos++, (byte) (roundWinner + 1));
+        out.put(pos++, (byte) (roundOver ? 1 : 0));
+        out.putShort(pos, (short) trickNumber);
+    }
+
+    /**
+     * Continues a round from a record written by writeRecord() of an engine with the same
+     * table size. The buffer's position is not used or moved.
+     */
+    public void readRecord(ByteBuffer in, int offset) {
+        int pos = offset;
+        for (int i = 0; i < numPlayers; i++) {
+            handLo[i] = in.getLong(pos);
+            handHi[i] = in.getLong(pos + 8);
+            pos += 16;
+        }
+        for (int i = dealtCards(); i < deck.length; i++) {
+            deck[i] = in.get(pos++);
+        }
+        for (int i = 0; i < numPlayers; i++) {
+            trickCards[i] = in.get(pos++) - 1;
+            scores[i] = in.getShort(pos) & 0xFFFF;
+            pos += 2;
+        }
+        deckPos = in.get(pos++) & 0xFF;
+        firstLeadCard = in.get(pos++);
+        firstSeat = in.get(pos++);
+        leadCard = in.get(pos++) - 1;
+        trickStartSeat = in.get(pos++);
+        currentSeat = in.get(pos++);
+        turnsInTrick = in.get(pos++);
+        roundWinner = in.get(pos++) - 1;
+        roundOver = in.get(pos++) != 0;
+        trickNumber = in.getShort(pos) & 0xFFFF;
+    }
+
+    /**
+     * Cards the seat may play right now: the whole hand when leading, otherwise the cards
+     * matching the suit or rank of the lead card.
+     */
+    public long legalCards(int seat) {
+        long held = handLo[seat] | handHi[seat];
+        if (leadCard < 0) {
+            return held;
+        }
+        return held & (suitMask(suitOf(leadCard)) | RANK_MASKS[rankOf(leadCard)]);
+    }
+
+    private void addCard(int seat, int card) {
+        long bit = 1L << card;
+        long carry = handLo[seat] & bit;
+        handLo[seat] ^= bit;
+        handHi[seat] |= carry;
+    }
+
+    private void removeCard(int seat, int card) {
+        long bit = 1L << card;
+        if ((handLo[seat] & bit) != 0) {
+            handLo[seat] ^= bit;
+        } else {
+            // A count of 2 becomes 1
+            handHi[seat] ^= bit;
+            handLo[seat] |= bit;
+        }
+    }
+
+    private void play(int seat, int card) {
+        removeCard(seat, card);
+        trickCards[seat] = card;
+        if (leadCard < 0) {
+            leadCard = card;
+        }
+        listener.cardPlayed(seat, card);
+        endTurn(seat);
+    }
+
+    private void endTurn(int seat) {
+        turnsInTrick++;
+        if (turnsInTrick == numPlayers) {
+            finishTrick();
+        } else {
+            currentSeat = (seat + 1) % numPlayers;
+        }
+    }
+
+    /**
+     * The seat holding the highest card of the lead suit, or the first seat to play if nobody
+     * followed suit. Returns -1 if every seat passed.
+     */
+    private int trickWinner() {
+        return trickWinner(trickCards, numPlayers, leadCard, trickStartSeat);
+    }
+
+    /**
+     * The trick winner for any table: trickCards holds each seat's card or -1 for a pass.
+     * GoBoomBatchTricks resolves many tricks at once by the same rule.
+     */
+    static int trickWinner(int[] trickCards, int numPlayers, int leadCard, int trickStartSeat) {
+        int leadSuit = suitOf(leadCard);
+        int winner = -1;
+        int winningCard = -1;
+        int firstPlayed = -1;
+
+        for (int i = 0; i < numPlayers; i++) {
+            int seat = (trickStartSeat + i) % numPlayers;
+            int card = trickCards[seat];
+            if (card < 0) {
+                continue;
+            }
+            if (firstPlayed < 0) {
+                firstPlayed = seat;
+            }
+            if (suitOf(card) == leadSuit && (winningCard < 0 || rankOf(card) > rankOf(winningCard))) {
+                winner = seat;
+                winningCard = card;
+            }
+        }
+        return winner >= 0 ? winner : firstPlayed;
+    }
+
+    private void finishTrick() {
+        int winner = trickWinner();
+        if (winner < 0) {
+            // Nobody could play and the deck is empty: the smallest hand takes the round
+            endRound(seatWithFewestCards());
+            return;
+        }
+
+        scores[winner]++;
+        listener.trickWon(winner, trickCards[winner], trickNumber);
+
+        for (int i = 0; i < numPlayers; i++) {
+            int seat = (trickStartSeat + i) % numPlayers;
+            if ((handLo[seat] | handHi[seat]) == 0) {
+                endRound(seat);
+                return;
+            }
+        }
+
+        for (int i = 0; i < numPlayers; i++) {
+            trickCards[i] = -1;
+        }
+        leadCard = -1;
+        trickStartSeat = winner;
+        currentSeat = winner;
+        turnsInTrick = 0;
+        trickNumber++;
+    }
+
+    private void endRound(int winner) {
+        roundOver = true;
+        roundWinner = winner;
+        listener.roundOver(winner, trickNumber);
+    }
+
+    private int seatWithFewestCards() {
+        int best = 0;
+        for (int i = 1; i < numPlayers; i++) {
+            if (getHandSize(i) < getHandSize(best)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private long nextRandom() {
+        rngState += 0x9E3779B97F4A7C15L;
+        return mix(rngState);
+    }
+
+    /**
+     * SplitMix64 finalizer, also used to derive independent per-game seeds.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static int suitOf(int card) {
+        return card / NUM_RANKS;
+    }
+
+    public static int rankOf(int card) {
+        return card % NUM_RANKS;
+    }
+
+    public static long suitMask(int suit) {
+        return SUIT_MASK << (suit * NUM_RANKS);
+    }
+
+    public static long rankMask(int rank) {
+        return RANK_MASKS[rank];
+    }
+
+    /**
+     * Same mapping as GoBoomGame.determineFirstPlayer(): counting A as 1, a face value v
+     * gives the first turn to player (v - 1) % numPlayers. With 4 players A/5/9/K go to
+     * Player1, 2/6/10 to Player2, 3/7/J to Player3 and 4/8/Q to Player4.
+     */
+    public static int firstPlayerFor(int card, int numPlayers) {
+        int rank = rankOf(card);
+        int faceValue = rank == NUM_RANKS - 1 ? 1 : rank + 2;
+        return (faceValue - 1) % numPlayers;
+    }
+
+    public static String cardName(int card) {
+        return SUITS[suitOf(card)] + RANKS[rankOf(card)];
+    }
+
+    /**
+     * Parses a GoBoomGame card name such as "h10" or "sA". Returns -1 if it is not a card.
+     */
+    public static int cardId(String name) {
+        if (name.length() < 2) {
+            return -1;
+        }
+        int suit = -1;
+        for (int i = 0; i < NUM_SUITS; i++) {
+            if (name.charAt(0) == SUITS[i].charAt(0)) {
+                suit = i;
+            }
+        }
+        String rankName = name.substring(1);
+        for (int rank = 0; rank < NUM_RANKS && suit >= 0; rank++) {
+            if (RANKS[rank].equals(rankName)) {
+                return suit * NUM_RANKS + rank;
+            }
+        }
+        return -1;
+    }
+
+    public static int encodeMove(int type, int card) {
+        return (type << 6) | card;
+    }
+
+    public static int moveType(int move) {
+        return move >>> 6;
+    }
+
+    public static int moveCard(int move) {
+        return move & 0x3F;
+    }
+
+    public int getNumPlayers() {
+        return numPlayers;
+    }
+
+    public int getNumDecks() {
+        return numDecks;
+    }
+
+    /**
+     * The distinct cards held by the seat, one bit per card regardless of copies.
+     */
+    public long getHand(int seat) {
+        return handLo[seat] | handHi[seat];
+    }
+
+    /**
+     * Bit 0 of every card count in the seat's hand (see the class comment).
+     */
+    public long getHandLo(int seat) {
+        return handLo[seat];
+    }
+
+    /**
+     * Bit 1 of every card count in the seat's hand.
+     */
+    public long getHandHi(int seat) {
+        return handHi[seat];
+    }
+
+    public int getCardCount(int seat, int card) {
+        return (int) ((handLo[seat] >>> card) & 1) + 2 * (int) ((handHi[seat] >>> card) & 1);
+    }
+
+    public int getHandSize(int seat) {
+        return Long.bitCount(handLo[seat]) + 2 * Long.bitCount(handHi[seat]);
+    }
+
+    public int getScore(int seat) {
+        return scores[seat];
+    }
+
+    public int getCurrentSeat() {
+        return currentSeat;
+    }
+
+    public int getLeadCard() {
+        return leadCard;
+    }
+
+    public int getTrickCard(int seat) {
+        return trickCards[seat];
+    }
+
+    public int getTrickNumber() {
+        return trickNumber;
+    }
+
+    public int getFirstLeadCard() {
+        return firstLeadCard;
+    }
+
+    public int getFirstSeat() {
+        return firstSeat;
+    }
+
+    public int getCardsLeftInDeck() {
+        return deck.length - deckPos;
+    }
+
+    /**
+     * The distinct cards still in the deck, one bit per card.
+     */
+    public long getDeckCards() {
+        long cards = 0;
+        for (int i = deckPos; i < deck.length; i++) {
+            cards |= 1L << deck[i];
+        }
+        return cards;
+    }
+
+    public int getRoundWinner() {
+        return roundWinner;
+    }
+
+    public boolean isRoundOver() {
+        return roundOver;
+    }
+}
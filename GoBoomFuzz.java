@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Property-based fuzzer for GoBoomGame. Worker threads feed random console commands into
+ * their own game (cards in hand, cards held by someone else, typos, draws, undo and redo,
+ * resets and the odd save) and check after every command that:
+ * <ul>
+ *   <li>every card of the deck(s) is exactly once in a hand, the center, the deck or a
+ *       finished trick, so none are lost or duplicated,</li>
+ *   <li>the scores add up to the number of tricks played,</li>
+ *   <li>saving and loading the game gives back the same game, both as text and, every
+ *       SAVE_INTERVAL steps, through the worker's own save file with its checksum line.</li>
+ * </ul>
+ * The first failure stops the run and prints the seed and the commands that led to it.
+ *
+ * Usage: java GoBoomFuzz [seconds] [threads] [seed] [players] [decks]
+ */
+public class GoBoomFuzz {
+    private static final int HISTORY_SIZE = 40;
+    // Steps between forced saves whose file is loaded back, on top of the random s commands
+    private static final int SAVE_INTERVAL = 4096;
+    // Lines GoBoomCommandParser must reject; main() checks this before fuzzing
+    private static final String[] TYPOS = {"", "h1", "H11", "sX", "z5", "x1", "10h", "cAA", "d 5", "?"};
+
+    private final int numPlayers;
+    private final int numDecks;
+    private final AtomicLong steps = new AtomicLong();
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    public GoBoomFuzz(int numPlayers, int numDecks) {
+        this.numPlayers = numPlayers;
+        this.numDecks = numDecks;
+    }
+
+    /**
+     * Fuzzes one game until the deadline or the first failure anywhere.
+     */
+    void run(long seed, long deadline, Path saveFile) {
+        Random random = new Random(seed);
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+
+        GoBoomGame game = new GoBoomGame(numPlayers, numDecks);
+        game.setOutput(silent);
+        game.setRandom(new Random(seed));
+        game.setSaveFile(saveFile.toString());
+        game.newGame();
+
+        GoBoomGame copy = new GoBoomGame(numPlayers, numDecks);
+        copy.setOutput(silent);
+        copy.setSaveFile(saveFile.toString());
+
+        ArrayDeque<String> history = new ArrayDeque<>();
+        long step = 0;
+        while (!failed.get()) {
+            if ((step & 1023) == 0 && System.currentTimeMillis() >= deadline) {
+                break;
+            }
+            String command = step % SAVE_INTERVAL == SAVE_INTERVAL - 1 ? "s" : randomCommand(random, game);
+            if (history.size() == HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(command);
+
+            // s saves before the turn moves on, so the file must match the game as it was
+            String saved = command.equals("s") ? game.saveText() : null;
+            if (game.handleCommand(command)) {
+                history.addLast("r");
+                game.handleCommand("r");
+            }
+            step++;
+
+            String violation = checkInvariants(game, copy);
+            if (violation == null && saved != null) {
+                violation = checkSaveFile(saved, copy);
+            }
+            if (violation != null) {
+                if (failed.compareAndSet(false, true)) {
+                    System.out.println("FAILED (seed " + seed + ", step " + step + "): " + violation);
+                    System.out.println("Last commands: " + history);
+                    System.out.print(game.saveText());
+                }
+                break;
+            }
+        }
+        steps.addAndGet(step);
+    }
+
+    private String randomCommand(Random random, GoBoomGame game) {
+        int roll = random.nextInt(100);
+        List<String> hand = game.getHand(game.getCurrentPlayer());
+        if (roll < 45 && !hand.isEmpty()) {
+            return hand.get(random.nextInt(hand.size()));
+        }
+        if (roll < 55) {
+            List<String> other = game.getHand(random.nextInt(numPlayers));
+            if (!other.isEmpty()) {
+                return other.get(random.nextInt(other.size()));
+            }
+        }
+        if (roll < 65) {
+            return GoBoomEngine.cardName(random.nextInt(GoBoomEngine.NUM_CARDS));
+        }
+        if (roll < 70) {
+            return TYPOS[random.nextInt(TYPOS.length)];
+        }
+        if (roll < 76) {
+            return random.nextBoolean() ? "u" : "y";
+        }
+        if (roll < 95) {
+            return "d";
+        }
+        return roll < 99 ? "r" : "s";
+    }
+
+    /**
+     * Returns a description of the first broken invariant, or null if the game is sound.
+     */
+    private String checkInvariants(GoBoomGame game, GoBoomGame copy) {
+        int[] counts = new int[GoBoomEngine.NUM_CARDS];
+        String unknown = null;
+        for (int i = 0; i < numPlayers && unknown == null; i++) {
+            unknown = count(game.getHand(i), counts);
+        }
+        if (unknown == null) {
+            unknown = count(game.getCenterCards(), counts);
+        }
+        if (unknown == null) {
+            unknown = count(game.getDeckCards(), counts);
+        }
+        if (unknown == null) {
+            unknown = count(game.getDiscardPile(), counts);
+        }
+        if (unknown != null) {
+            return "\"" + unknown + "\" is not a card";
+        }
+        for (int card = 0; card < counts.length; card++) {
+            if (counts[card] != numDecks) {
+                return GoBoomEngine.cardName(card) + " appears " + counts[card] + " times instead of " + numDecks;
+            }
+        }
+
+        int scoreTotal = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            scoreTotal += game.getScore(i);
+        }
+        if (scoreTotal != game.getTrickNumber() - 1) {
+            return "scores add up to " + scoreTotal + " after " + (game.getTrickNumber() - 1) + " tricks";
+        }
+
+        int player = game.getCurrentPlayer();
+        if (player < 0 || player >= numPlayers) {
+            return "current player " + player + " is not a seat";
+        }
+
+        String saved = game.saveText();
+        if (!copy.loadText(saved)) {
+            return "the game's own save does not load";
+        }
+        if (!copy.saveText().equals(saved)) {
+            return "loading a save and saving again gives a different save";
+        }
+        return null;
+    }
+
+    /**
+     * Checks the file the last s command wrote: it must pass its checksum and load back into
+     * the game that was saved.
+     */
+    private String checkSaveFile(String saved, GoBoomGame copy) {
+        if (!copy.loadSavedGame()) {
+            return "the save file does not load";
+        }
+        if (!copy.saveText().equals(saved)) {
+            return "loading the save file gives a different game";
+        }
+        return null;
+    }
+
+    /**
+     * Adds the cards to counts. Returns the first name that is not a card, or null.
+     */
+    private static String count(List<String> cards, int[] counts) {
+        for (String card : cards) {
+            int id = GoBoomEngine.cardId(card);
+            if (id < 0) {
+                return card;
+            }
+            counts[id]++;
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int numPlayers = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int numDecks = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        GoBoomCommandParser parser = new GoBoomCommandParser();
+        for (String typo : TYPOS) {
+            if (parser.parse(typo) >= 0) {
+                throw new IllegalStateException("\"" + typo + "\" is a valid command, not a typo");
+            }
+        }
+
+        GoBoomFuzz fuzz = new GoBoomFuzz(numPlayers, numDecks);
+        Path saveDirectory = Files.createTempDirectory("go-boom-fuzz");
+        long deadline = System.currentTimeMillis() + seconds * 1000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long workerSeed = seed + t;
+            Path saveFile = saveDirectory.resolve("fuzz-" + t + ".txt");
+            workers[t] = new Thread(() -> fuzz.run(workerSeed, deadline, saveFile), "fuzz-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        try (Stream<Path> files = Files.list(saveDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(saveDirectory);
+
+        System.out.printf("%s: %d steps on %d threads in %d s (%.0f steps/min), seed %d%n",
+                fuzz.failed.get() ? "Failed" : "Passed", fuzz.steps.get(), threads, seconds,
+                fuzz.steps.get() * 60.0 / seconds, seed);
+        if (fuzz.failed.get()) {
+            System.exit(1);
+        }
+    }
+}
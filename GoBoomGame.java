@@ -1,53 +1,205 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Random;
+import java.util.zip.CRC32;
 
 public class GoBoomGame {
     private static final String[] RANKS = {"2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K", "A"};
     private static final String[] SUITS = {"c", "d", "h", "s"};
-    private static final String[] PLAYERS = {"Player1", "Player2", "Player3", "Player4"};
+    private static final String CHECKSUM_PREFIX = "crc ";
+    // Card names by GoBoomEngine card id, so parsed cards can be matched against the hands
+    private static final String[] CARD_NAMES = new String[GoBoomEngine.NUM_CARDS];
 
-    private List<String> deck;
+    static {
+        for (int card = 0; card < CARD_NAMES.length; card++) {
+            CARD_NAMES[card] = GoBoomEngine.cardName(card);
+        }
+    }
+
+    private final int numPlayers;
+    private final int numDecks;
+    private final String[] playerNames;
+    private final String[] deck;
+    private int deckPos;
     private List<String>[] playerHands;
     private List<String> centerCards;
+    // The seat that played each center card, -1 for the first lead card turned up from the deck
+    private List<Integer> centerSeats;
+    private List<String> discardPile;
     private int[] playerScores;
     private int currentPlayerIndex;
     private String leadCard;
     private int trickNumber;
+    private GoBoomEngine.Listener listener = new GoBoomEngine.Listener() {
+    };
+    private PrintStream out = System.out;
+    private Random random = new Random();
+    private String saveFile = "saved_game.txt";
+    private final GoBoomCommandParser parser = new GoBoomCommandParser();
+    private Reader input = new BufferedReader(new InputStreamReader(System.in));
+    // Bumped by every change, so an autosaver can tell without locking whether to save again
+    private volatile long version;
+    private GoBoomAutosaver.Table autosave;
+    // The undo tree: every draw and play since the game was dealt or loaded, and the turn
+    // that led to the current position
+    private final Turn rootTurn = new Turn(null, -1);
+    private Turn currentTurn = rootTurn;
+    // The turn being played, for drawCard() and playCard() to note what undo needs
+    private Turn pendingTurn;
+
+    /**
+     * One turn in the undo tree. Besides the move it keeps only what undo cannot work out from
+     * the rest of the game: whose turn it was, where a played card sat in its hand and, if the
+     * play ended a trick, who won it and the seats of its cards. Trying another move from a
+     * position costs one of these, whatever the size of the table.
+     */
+    private static final class Turn {
+        final Turn parent;
+        final int seat;
+        // A GoBoomEngine move: MOVE_PLAY with the card, MOVE_DRAW, or MOVE_PASS when the turn
+        // only moved on because the deck is empty
+        int move = -1;
+        int handIndex;
+        int trickWinner = -1;
+        int trickSize;
+        // The seat of each card of the finished trick plus one, four bits per card
+        long trickSeats;
+        Turn firstChild;
+        Turn nextSibling;
+        // The child redo follows: the one most recently played or taken back
+        Turn redoChild;
+
+        Turn(Turn parent, int seat) {
+            this.parent = parent;
+            this.seat = seat;
+        }
+    }
 
     public GoBoomGame() {
-        deck = new ArrayList<>();
-        playerHands = new List[4];
-        for (int i = 0; i < 4; i++) {
-            playerHands[i] = new ArrayList<>();
+        this(4, 1);
+    }
+
+    public GoBoomGame(int numPlayers, int numDecks) {
+        // Same limits as the simulation engine, so both run the same table variants
+        GoBoomEngine.checkTableSize(numPlayers, numDecks);
+
+        this.numPlayers = numPlayers;
+        this.numDecks = numDecks;
+        playerNames = new String[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            playerNames[i] = "Player" + (i + 1);
+        }
+
+        // Everything is sized once for the table; a hand can at most hold the whole deck
+        deck = new String[numDecks * SUITS.length * RANKS.length];
+        deckPos = deck.length;
+        playerHands = new List[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            playerHands[i] = new ArrayList<>(deck.length);
         }
-        centerCards = new ArrayList<>();
-        playerScores = new int[4];
+        centerCards = new ArrayList<>(numPlayers + 1);
+        centerSeats = new ArrayList<>(numPlayers + 1);
+        discardPile = new ArrayList<>(deck.length);
+        playerScores = new int[numPlayers];
         currentPlayerIndex = 0;
         leadCard = "";
         trickNumber = 1;
     }
 
+    /**
+     * Reports draws, plays and trick winners (as GoBoomEngine card ids) to a listener, for
+     * example a GoBoomBroadcaster channel.
+     */
+    public void setListener(GoBoomEngine.Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Where game messages go; System.out unless changed.
+     */
+    void setOutput(PrintStream out) {
+        this.out = out;
+    }
+
+    PrintStream getOutput() {
+        return out;
+    }
+
+    void setRandom(Random random) {
+        this.random = random;
+    }
+
+    void setSaveFile(String saveFile) {
+        this.saveFile = saveFile;
+    }
+
+    String getSaveFile() {
+        return saveFile;
+    }
+
+    /**
+     * Hands changes and exits to an autosaver instead of leaving the save file untouched until
+     * the next s. Set by GoBoomAutosaver.register().
+     */
+    void setAutosave(GoBoomAutosaver.Table autosave) {
+        this.autosave = autosave;
+    }
+
+    /**
+     * Changes every time the game state changes.
+     */
+    long getVersion() {
+        return version;
+    }
+
+    private void changed() {
+        version++;
+        if (autosave != null) {
+            autosave.changed();
+        }
+    }
+
     public void startGame() {
-        System.out.println("Go Boom Game");
+        out.println("Go Boom Game");
 
         // Check if a saved game file exists
         if (isSavedGameAvailable()) {
-            System.out.println("Saved game found. Do you want to resume? (y/n)");
-            Scanner scanner = new Scanner(System.in);
-            String response = scanner.nextLine().trim().toLowerCase();
-
-            if (response.equals("y") || response.equals("yes")) {
-                loadSavedGame();
-                printGameState();
-                gameLoop();
-                return;
+            out.println("Saved game found. Do you want to resume? (y/n)");
+
+            if (readLine() && (parser.lineEquals("y") || parser.lineEquals("yes"))) {
+                if (loadSavedGame()) {
+                    printGameState();
+                    gameLoop();
+                    return;
+                }
+                out.println("Starting a new game instead.");
             }
         }
 
+        newGame();
+
+        // Print the initial game state
+        printGameState();
+
+        // Start the game loop
+        gameLoop();
+    }
+
+    /**
+     * Shuffles a fresh deck, deals the hands and turns up the first lead card.
+     */
+    synchronized void newGame() {
+        changed();
+        clearHistory();
+
         // Generate and shuffle the deck
         generateDeck();
         shuffleDeck();
@@ -57,172 +209,342 @@ public class GoBoomGame {
 
         // Determine the lead card and first player
         determineFirstPlayer();
-
-        // Print the initial game state
-        printGameState();
-
-        // Start the game loop
-        gameLoop();
     }
 
     private void generateDeck() {
-        deck.clear();
-        for (String suit : SUITS) {
-            for (String rank : RANKS) {
-                deck.add(suit + rank);
+        centerCards.clear();
+        centerSeats.clear();
+        discardPile.clear();
+        int i = 0;
+        for (int d = 0; d < numDecks; d++) {
+            for (String suit : SUITS) {
+                for (String rank : RANKS) {
+                    deck[i++] = suit + rank;
+                }
             }
         }
+        deckPos = 0;
     }
 
     private void shuffleDeck() {
-        Collections.shuffle(deck);
+        Collections.shuffle(Arrays.asList(deck), random);
+    }
+
+    private boolean isDeckEmpty() {
+        return deckPos == deck.length;
     }
 
     private void dealCards() {
         for (int i = 0; i < 7; i++) {
-            for (int j = 0; j < 4; j++) {
-                playerHands[j].add(deck.remove(0));
+            for (int j = 0; j < numPlayers; j++) {
+                playerHands[j].add(deck[deckPos++]);
             }
         }
     }
 
     private void determineFirstPlayer() {
-        String firstLeadCard = deck.remove(0);
+        String firstLeadCard = deck[deckPos++];
         centerCards.add(firstLeadCard);
-        System.out.println("The first lead card " + firstLeadCard + " is placed at the center.");
-
-        char suit = firstLeadCard.charAt(0);
-        char rank = firstLeadCard.charAt(1);
+        centerSeats.add(-1);
+        out.println("The first lead card " + firstLeadCard + " is placed at the center.");
 
-        if (rank == 'A' || rank == '5' || rank == '9' || rank == 'K') {
-            currentPlayerIndex = 0;
-        } else if (rank == '2' || rank == '6' || rank == 'X') {
-            currentPlayerIndex = 1;
-        } else if (rank == '3' || rank == '7' || rank == 'J') {
-            currentPlayerIndex = 2;
-        } else if (rank == '4' || rank == '8' || rank == 'Q') {
-            currentPlayerIndex = 3;
-        }
+        // A/5/9/K -> Player1, 2/6/10 -> Player2, 3/7/J -> Player3, 4/8/Q -> Player4, wrapping for other table sizes
+        currentPlayerIndex = GoBoomEngine.firstPlayerFor(GoBoomEngine.cardId(firstLeadCard), numPlayers);
 
-        System.out.println("The first player is " + PLAYERS[currentPlayerIndex] + ".");
+        out.println("The first player is " + playerNames[currentPlayerIndex] + ".");
     }
 
     private void printGameState() {
-        System.out.println("\n--- Game State ---");
-        System.out.println("Trick Number: " + trickNumber);
-        System.out.println("Current Player: " + PLAYERS[currentPlayerIndex]);
-        System.out.println("Player Scores: " + Arrays.toString(playerScores));
-
-        System.out.println("\nPlayer Hands:");
-        for (int i = 0; i < 4; i++) {
-            System.out.println(PLAYERS[i] + ": " + playerHands[i]);
+        out.println("\n--- Game State ---");
+        out.println("Trick Number: " + trickNumber);
+        out.println("Current Player: " + playerNames[currentPlayerIndex]);
+        out.println("Player Scores: " + Arrays.toString(playerScores));
+
+        out.println("\nPlayer Hands:");
+        for (int i = 0; i < numPlayers; i++) {
+            out.println(playerNames[i] + ": " + playerHands[i]);
         }
 
-        System.out.println("\nCenter Cards: " + centerCards);
+        out.println("\nCenter Cards: " + centerCards);
 
         displayDeck(); // Display the deck
     }
 
     private void displayDeck() {
-        System.out.println("Deck: " + deck);
+        out.println("Deck: " + Arrays.asList(deck).subList(deckPos, deck.length));
     }
 
     private void gameLoop() {
-        Scanner scanner = new Scanner(System.in);
-        String command;
         boolean gameFinished = false;
 
-        while (!gameFinished) {
-            command = scanner.nextLine().trim();
-
-            switch (command) {
-                case "s":
-                    saveGame();
-                    System.out.println("Game saved.");
-                    break;
-                case "x":
-                    gameFinished = true;
-                    deleteSavedGame();
-                    break;
-                case "d":
-                    drawCard();
-                    break;
-                case "r":
-                    resetGame();
-                    break;
-                default:
-                    playCard(command);
-                    break;
-            }
+        // The input ending (Ctrl-D, end of a script) leaves the game as it is, like x without deleting
+        while (!gameFinished && readLine()) {
+            gameFinished = handleCommand(parser.parse());
+        }
+    }
 
-            if (deck.isEmpty()) {
-                System.out.println("The deck is empty. Skipping to the next player.");
-                currentPlayerIndex = (currentPlayerIndex + 1) % 4;
-            }
+    private boolean readLine() {
+        try {
+            return parser.readLine(input);
+        } catch (IOException e) {
+            out.println("An error occurred while reading input.");
+            return false;
+        }
+    }
 
-            printGameState();
+    /**
+     * Where commands are read from; System.in unless changed.
+     */
+    void setInput(Reader input) {
+        this.input = input;
+    }
 
-            if (isGameOver()) {
+    /**
+     * Runs one console command and prints the new state. Returns true once the game has
+     * finished, either by exiting or because someone reached the winning score.
+     */
+    boolean handleCommand(String command) {
+        return handleCommand(parser.parse(command));
+    }
+
+    private synchronized boolean handleCommand(int command) {
+        boolean gameFinished = false;
+        // Saves, typos and rejected moves leave the version alone, so they queue no autosave
+        boolean stateChanged = false;
+
+        int move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PASS, 0);
+        switch (command) {
+            case GoBoomCommandParser.SAVE:
+                saveGame();
+                out.println("Game saved.");
+                break;
+            case GoBoomCommandParser.EXIT:
                 gameFinished = true;
-                System.out.println("Game over!");
-                displayPlayerScores();
                 deleteSavedGame();
+                break;
+            case GoBoomCommandParser.DRAW:
+                move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_DRAW, 0);
+                break;
+            case GoBoomCommandParser.RESET:
+                resetGame();
+                break;
+            case GoBoomCommandParser.PLAY:
+                move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PLAY, parser.getCard());
+                break;
+            case GoBoomCommandParser.UNDO:
+                stateChanged = undo();
+                break;
+            case GoBoomCommandParser.REDO:
+                stateChanged = redo();
+                break;
+            default:
+                out.println(GoBoomCommandParser.describe(command));
+                break;
+        }
+        // x leaves the table as it was, or the empty-deck pass would save it again after the delete
+        if (command != GoBoomCommandParser.UNDO && command != GoBoomCommandParser.REDO
+                && command != GoBoomCommandParser.EXIT) {
+            stateChanged = playTurn(move);
+        }
+        if (stateChanged) {
+            changed();
+        }
+
+        printGameState();
+
+        if (isGameOver()) {
+            gameFinished = true;
+            out.println("Game over!");
+            displayPlayerScores();
+            deleteSavedGame();
+        }
+        return gameFinished;
+    }
+
+    /**
+     * Plays a draw or a card, or for MOVE_PASS nothing, then moves on to the next player if
+     * the deck is empty, and records the turn in the undo tree. Returns false if nothing
+     * changed.
+     */
+    private boolean playTurn(int move) {
+        Turn turn = new Turn(currentTurn, currentPlayerIndex);
+        pendingTurn = turn;
+        if (GoBoomEngine.moveType(move) == GoBoomEngine.MOVE_DRAW) {
+            drawCard();
+        } else if (GoBoomEngine.moveType(move) == GoBoomEngine.MOVE_PLAY) {
+            playCard(GoBoomEngine.moveCard(move));
+        }
+        pendingTurn = null;
+
+        if (isDeckEmpty()) {
+            out.println("The deck is empty. Skipping to the next player.");
+            currentPlayerIndex = (currentPlayerIndex + 1) % numPlayers;
+        }
+        if (turn.move < 0) {
+            if (currentPlayerIndex == turn.seat) {
+                // A rejected move on a table with cards left to draw: nothing happened
+                return false;
+            }
+            turn.move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PASS, 0);
+        }
+
+        // A move already tried from here takes that branch again instead of starting another
+        Turn child = currentTurn.firstChild;
+        while (child != null && child.move != turn.move) {
+            child = child.nextSibling;
+        }
+        if (child == null) {
+            child = turn;
+            child.nextSibling = currentTurn.firstChild;
+            currentTurn.firstChild = child;
+        }
+        currentTurn.redoChild = child;
+        currentTurn = child;
+        return true;
+    }
+
+    /**
+     * Takes back the last turn. Like redo, it is not reported to the listener.
+     */
+    private boolean undo() {
+        Turn turn = currentTurn;
+        if (turn == rootTurn) {
+            out.println("There is nothing to undo.");
+            return false;
+        }
+
+        if (GoBoomEngine.moveType(turn.move) == GoBoomEngine.MOVE_DRAW) {
+            List<String> hand = playerHands[turn.seat];
+            hand.remove(hand.size() - 1);
+            deckPos--;
+        } else if (GoBoomEngine.moveType(turn.move) == GoBoomEngine.MOVE_PLAY) {
+            if (turn.trickWinner >= 0) {
+                // The trick went to the discard pile last; put it back in the center
+                playerScores[turn.trickWinner]--;
+                trickNumber--;
+                List<String> trick = discardPile.subList(discardPile.size() - turn.trickSize, discardPile.size());
+                centerCards.addAll(trick);
+                trick.clear();
+                for (int i = 0; i < turn.trickSize; i++) {
+                    centerSeats.add((int) (turn.trickSeats >>> (4 * i) & 15) - 1);
+                }
             }
+            centerCards.remove(centerCards.size() - 1);
+            centerSeats.remove(centerSeats.size() - 1);
+            playerHands[turn.seat].add(turn.handIndex, CARD_NAMES[GoBoomEngine.moveCard(turn.move)]);
+        }
+        currentPlayerIndex = turn.seat;
+        turn.parent.redoChild = turn;
+        currentTurn = turn.parent;
+        out.println("Took back " + playerNames[turn.seat] + "'s turn.");
+        return true;
+    }
+
+    /**
+     * Plays the turn undo took back last, or the branch last played from here.
+     */
+    private boolean redo() {
+        Turn turn = currentTurn.redoChild;
+        if (turn == null) {
+            out.println("There is nothing to redo.");
+            return false;
         }
+        return playTurn(turn.move);
+    }
+
+    private void clearHistory() {
+        rootTurn.firstChild = null;
+        rootTurn.redoChild = null;
+        currentTurn = rootTurn;
     }
 
     private void drawCard() {
-        if (deck.isEmpty()) {
-            System.out.println("The deck is empty. Cannot draw a card.");
+        if (isDeckEmpty()) {
+            out.println("The deck is empty. Cannot draw a card.");
             return;
         }
 
-        String drawnCard = deck.remove(0);
+        pendingTurn.move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_DRAW, 0);
+        String drawnCard = deck[deckPos++];
         playerHands[currentPlayerIndex].add(drawnCard);
-        System.out.println(PLAYERS[currentPlayerIndex] + " drew a card: " + drawnCard);
-        currentPlayerIndex = (currentPlayerIndex + 1) % 4;
+        out.println(playerNames[currentPlayerIndex] + " drew a card: " + drawnCard);
+        listener.cardDrawn(currentPlayerIndex, GoBoomEngine.cardId(drawnCard));
+        currentPlayerIndex = (currentPlayerIndex + 1) % numPlayers;
     }
 
-    private void playCard(String card) {
-        if (!playerHands[currentPlayerIndex].contains(card)) {
-            System.out.println("Invalid card. Please try again.");
+    private void playCard(int cardId) {
+        String card = CARD_NAMES[cardId];
+        int handIndex = playerHands[currentPlayerIndex].indexOf(card);
+        if (handIndex < 0) {
+            out.println("You do not have " + card + ". Please try again.");
             return;
         }
+        playerHands[currentPlayerIndex].remove(handIndex);
+        pendingTurn.move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PLAY, cardId);
+        pendingTurn.handIndex = handIndex;
 
-        playerHands[currentPlayerIndex].remove(card);
         centerCards.add(card);
-        currentPlayerIndex = (currentPlayerIndex + 1) % 4;
-        System.out.println(PLAYERS[currentPlayerIndex] + " played a card: " + card);
-
-        if (centerCards.size() == 4) {
+        centerSeats.add(currentPlayerIndex);
+        listener.cardPlayed(currentPlayerIndex, cardId);
+        out.println(playerNames[currentPlayerIndex] + " played a card: " + card);
+        currentPlayerIndex = (currentPlayerIndex + 1) % numPlayers;
+
+        if (playsInTrick() == numPlayers) {
+            pendingTurn.trickSize = centerSeats.size();
+            for (int i = 0; i < centerSeats.size(); i++) {
+                pendingTurn.trickSeats |= (long) (centerSeats.get(i) + 1) << (4 * i);
+            }
             determineTrickWinner();
+            pendingTurn.trickWinner = currentPlayerIndex;
+            discardPile.addAll(centerCards);
             centerCards.clear();
+            centerSeats.clear();
             trickNumber++;
         }
     }
 
-    private void determineTrickWinner() {
-        String winningCard = centerCards.get(0);
-        char winningSuit = winningCard.charAt(0);
-        char winningRank = winningCard.charAt(1);
-        int winningPlayerIndex = 0;
+    private int playsInTrick() {
+        // The first lead card from the deck does not count as a play
+        int plays = 0;
+        for (int seat : centerSeats) {
+            if (seat >= 0) {
+                plays++;
+            }
+        }
+        return plays;
+    }
 
-        for (int i = 1; i < 4; i++) {
+    private void determineTrickWinner() {
+        // Ranks are compared by their position in RANKS; comparing characters put "10" below "2"
+        // and A below J, Q and K
+        int leadSuit = GoBoomEngine.suitOf(GoBoomEngine.cardId(centerCards.get(0)));
+        String winningCard = null;
+        int winningRank = -1;
+        int winningPlayerIndex = -1;
+
+        for (int i = 0; i < centerCards.size(); i++) {
+            if (centerSeats.get(i) < 0) {
+                continue;
+            }
             String card = centerCards.get(i);
-            char suit = card.charAt(0);
-            char rank = card.charAt(1);
+            int id = GoBoomEngine.cardId(card);
 
-            if (suit == winningSuit && rank > winningRank) {
+            if (winningCard == null) {
+                // Nobody following the lead suit leaves the trick with the first player
+                winningCard = card;
+                winningPlayerIndex = centerSeats.get(i);
+            }
+            if (GoBoomEngine.suitOf(id) == leadSuit && GoBoomEngine.rankOf(id) > winningRank) {
                 winningCard = card;
-                winningSuit = suit;
-                winningRank = rank;
-                winningPlayerIndex = i;
+                winningRank = GoBoomEngine.rankOf(id);
+                winningPlayerIndex = centerSeats.get(i);
             }
         }
 
-        currentPlayerIndex = (currentPlayerIndex + winningPlayerIndex) % 4;
-        System.out.println(PLAYERS[currentPlayerIndex] + " won the trick with the card " + winningCard);
+        currentPlayerIndex = winningPlayerIndex;
+        out.println(playerNames[currentPlayerIndex] + " won the trick with the card " + winningCard);
         playerScores[currentPlayerIndex]++;
+        listener.trickWon(currentPlayerIndex, GoBoomEngine.cardId(winningCard), trickNumber);
     }
 
     private boolean isGameOver() {
@@ -235,99 +557,304 @@ public class GoBoomGame {
     }
 
     private void displayPlayerScores() {
-        System.out.println("Player Scores:");
-        for (int i = 0; i < 4; i++) {
-            System.out.println(PLAYERS[i] + ": " + playerScores[i]);
+        out.println("Player Scores:");
+        for (int i = 0; i < numPlayers; i++) {
+            out.println(playerNames[i] + ": " + playerScores[i]);
         }
     }
 
     private boolean isSavedGameAvailable() {
-        File file = new File("saved_game.txt");
+        File file = new File(saveFile);
         return file.exists();
     }
 
     private void saveGame() {
         try {
-            FileWriter writer = new FileWriter("saved_game.txt");
-            writer.write(Integer.toString(currentPlayerIndex) + "\n");
-            writer.write(Integer.toString(trickNumber) + "\n");
+            writeSaveFile(Paths.get(saveFile), saveText());
+        } catch (IOException e) {
+            out.println("An error occurred while saving the game.");
+        }
+    }
 
-            for (List<String> hand : playerHands) {
-                for (String card : hand) {
-                    writer.write(card + " ");
-                }
-                writer.write("\n");
-            }
+    /**
+     * Writes saveText() output with its checksum line. The file is written next to the old one
+     * and moved into place, so a crash mid-write leaves the previous save.
+     */
+    static void writeSaveFile(Path file, String text) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        String checksum = CHECKSUM_PREFIX + Long.toHexString(crc.getValue()) + "\n";
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, (text + checksum).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-            for (String card : centerCards) {
-                writer.write(card + " ");
+    /**
+     * Loads saved_game.txt. Returns false, leaving the current state untouched, if the file
+     * cannot be read, its checksum does not match or it does not describe a valid game.
+     */
+    boolean loadSavedGame() {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(Paths.get(saveFile)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            out.println("An error occurred while loading the saved game.");
+            return false;
+        }
+
+        // Files written before checksums were added have no checksum line
+        int checksumStart = text.lastIndexOf(CHECKSUM_PREFIX);
+        if (checksumStart >= 0) {
+            String body = text.substring(0, checksumStart);
+            CRC32 crc = new CRC32();
+            crc.update(body.getBytes(StandardCharsets.UTF_8));
+            String expected = text.substring(checksumStart + CHECKSUM_PREFIX.length()).trim();
+            if (!expected.equals(Long.toHexString(crc.getValue()))) {
+                out.println("The saved game is corrupt.");
+                return false;
             }
-            writer.write("\n");
+            text = body;
+        }
+
+        if (!loadText(text)) {
+            out.println("The saved game is corrupt.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The saved_game.txt format: current player, trick number, one line per hand, the center
+     * cards, the scores, the cards left in the deck and the seat that played each center card
+     * (-1 for the first lead card), space separated. Cards in none of these are the tricks
+     * already played.
+     */
+    synchronized String saveText() {
+        StringBuilder text = new StringBuilder();
+        text.append(currentPlayerIndex).append("\n");
+        text.append(trickNumber).append("\n");
 
-            for (int score : playerScores) {
-                writer.write(Integer.toString(score) + " ");
+        for (List<String> hand : playerHands) {
+            for (String card : hand) {
+                text.append(card).append(" ");
             }
-            writer.write("\n");
+            text.append("\n");
+        }
 
-            writer.close();
-        } catch (IOException e) {
-            System.out.println("An error occurred while saving the game.");
+        for (String card : centerCards) {
+            text.append(card).append(" ");
+        }
+        text.append("\n");
+
+        for (int score : playerScores) {
+            text.append(score).append(" ");
+        }
+        text.append("\n");
+
+        for (int i = deckPos; i < deck.length; i++) {
+            text.append(deck[i]).append(" ");
         }
+        text.append("\n");
+
+        for (int seat : centerSeats) {
+            text.append(seat).append(" ");
+        }
+        text.append("\n");
+        return text.toString();
     }
 
-    private void loadSavedGame() {
-        try {
-            FileReader reader = new FileReader("saved_game.txt");
-            BufferedReader bufferedReader = new BufferedReader(reader);
+    /**
+     * Restores a game from saveText() output. Everything is parsed and checked before any
+     * field is changed, so a bad save leaves the current game as it was.
+     */
+    synchronized boolean loadText(String text) {
+        String[] lines = text.split("\n", -1);
+        if (lines.length < numPlayers + 4) {
+            return false;
+        }
 
-            currentPlayerIndex = Integer.parseInt(bufferedReader.readLine());
-            trickNumber = Integer.parseInt(bufferedReader.readLine());
+        int savedPlayer;
+        int savedTrick;
+        int[] savedScores = new int[numPlayers];
+        List<Integer> savedSeats = new ArrayList<>();
+        try {
+            savedPlayer = Integer.parseInt(lines[0].trim());
+            savedTrick = Integer.parseInt(lines[1].trim());
+            String[] scores = splitCards(lines[numPlayers + 3]);
+            if (scores.length != numPlayers) {
+                return false;
+            }
+            for (int i = 0; i < numPlayers; i++) {
+                savedScores[i] = Integer.parseInt(scores[i]);
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (savedPlayer < 0 || savedPlayer >= numPlayers || savedTrick < 1) {
+            return false;
+        }
 
-            for (int i = 0; i < 4; i++) {
-                String[] cards = bufferedReader.readLine().trim().split(" ");
-                playerHands[i].clear();
-                playerHands[i].addAll(Arrays.asList(cards));
+        String[][] savedHands = new String[numPlayers][];
+        for (int i = 0; i < numPlayers; i++) {
+            savedHands[i] = splitCards(lines[i + 2]);
+        }
+        String[] savedCenter = splitCards(lines[numPlayers + 2]);
+        // Saves from before the deck and center seats were stored have no lines for them
+        String[] savedDeck = lines.length > numPlayers + 4 ? splitCards(lines[numPlayers + 4]) : new String[0];
+        if (lines.length > numPlayers + 5 && !lines[numPlayers + 5].trim().isEmpty()) {
+            try {
+                for (String seat : splitCards(lines[numPlayers + 5])) {
+                    savedSeats.add(Integer.parseInt(seat));
+                }
+            } catch (NumberFormatException e) {
+                return false;
             }
+        } else {
+            // Old saves: assume the center cards were played by the seats just before the current one
+            for (int i = 0; i < savedCenter.length; i++) {
+                boolean fromDeck = i == 0 && savedTrick == 1;
+                savedSeats.add(fromDeck ? -1 : Math.floorMod(savedPlayer - savedCenter.length + i, numPlayers));
+            }
+        }
+        if (savedSeats.size() != savedCenter.length) {
+            return false;
+        }
+        for (int seat : savedSeats) {
+            if (seat < -1 || seat >= numPlayers) {
+                return false;
+            }
+        }
 
-            String[] cards = bufferedReader.readLine().trim().split(" ");
-            centerCards.clear();
-            centerCards.addAll(Arrays.asList(cards));
+        // Count every card in play; whatever is left of the full deck(s) went to finished tricks
+        int[] remaining = new int[GoBoomEngine.NUM_CARDS];
+        Arrays.fill(remaining, numDecks);
+        if (!takeCards(savedCenter, remaining) || !takeCards(savedDeck, remaining)) {
+            return false;
+        }
+        for (String[] hand : savedHands) {
+            if (!takeCards(hand, remaining)) {
+                return false;
+            }
+        }
 
-            String[] scores = bufferedReader.readLine().trim().split(" ");
-            for (int i = 0; i < 4; i++) {
-                playerScores[i] = Integer.parseInt(scores[i]);
+        currentPlayerIndex = savedPlayer;
+        trickNumber = savedTrick;
+        System.arraycopy(savedScores, 0, playerScores, 0, numPlayers);
+        for (int i = 0; i < numPlayers; i++) {
+            playerHands[i].clear();
+            playerHands[i].addAll(Arrays.asList(savedHands[i]));
+        }
+        centerCards.clear();
+        centerCards.addAll(Arrays.asList(savedCenter));
+        centerSeats.clear();
+        centerSeats.addAll(savedSeats);
+        deckPos = deck.length - savedDeck.length;
+        System.arraycopy(savedDeck, 0, deck, deckPos, savedDeck.length);
+        discardPile.clear();
+        for (int card = 0; card < GoBoomEngine.NUM_CARDS; card++) {
+            for (int i = 0; i < remaining[card]; i++) {
+                discardPile.add(GoBoomEngine.cardName(card));
             }
+        }
+        clearHistory();
+        changed();
+        return true;
+    }
 
-            bufferedReader.close();
-            reader.close();
-        } catch (IOException e) {
-            System.out.println("An error occurred while loading the saved game.");
+    private static String[] splitCards(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(" +");
+    }
+
+    /**
+     * Takes the cards out of the remaining counts. Returns false for unknown cards or more
+     * copies of a card than the decks hold.
+     */
+    private static boolean takeCards(String[] cards, int[] remaining) {
+        for (String card : cards) {
+            int id = GoBoomEngine.cardId(card);
+            if (id < 0 || remaining[id] == 0) {
+                return false;
+            }
+            remaining[id]--;
         }
+        return true;
     }
 
     private void deleteSavedGame() {
-        File file = new File("saved_game.txt");
+        if (autosave != null) {
+            // The autosaver deletes it on its writer thread, after any write already under way
+            autosave.delete();
+            return;
+        }
+        File file = new File(saveFile);
         file.delete();
     }
 
     private void resetGame() {
         currentPlayerIndex = 0;
         trickNumber = 1;
-        playerScores = new int[4];
-        deck.clear();
+        Arrays.fill(playerScores, 0);
         for (List<String> hand : playerHands) {
             hand.clear();
         }
         centerCards.clear();
-        generateDeck();
-        shuffleDeck();
-        dealCards();
-        determineFirstPlayer();
+        newGame();
         printGameState();
     }
 
+    int getNumPlayers() {
+        return numPlayers;
+    }
+
+    int getNumDecks() {
+        return numDecks;
+    }
+
+    List<String> getHand(int player) {
+        return playerHands[player];
+    }
+
+    List<String> getCenterCards() {
+        return centerCards;
+    }
+
+    List<String> getDiscardPile() {
+        return discardPile;
+    }
+
+    List<String> getDeckCards() {
+        return Arrays.asList(deck).subList(deckPos, deck.length);
+    }
+
+    int getScore(int player) {
+        return playerScores[player];
+    }
+
+    int getCurrentPlayer() {
+        return currentPlayerIndex;
+    }
+
+    int getTrickNumber() {
+        return trickNumber;
+    }
+
     public static void main(String[] args) {
-        GoBoomGame game = new GoBoomGame();
+        int numPlayers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int numDecks = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        GoBoomGame game = new GoBoomGame(numPlayers, numDecks);
+
+        // Save a few seconds after every change, and once more if the JVM is shut down
+        GoBoomAutosaver autosaver = new GoBoomAutosaver(GoBoomAutosaver.DEFAULT_INTERVAL_MILLIS,
+                GoBoomAutosaver.DEFAULT_WRITES_PER_SECOND);
+        autosaver.installShutdownHook();
+        autosaver.register(game, Paths.get(game.getSaveFile()));
         game.startGame();
     }
 }
@@ -1,19 +1,34 @@
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 public class GoBoomGameGUI extends Application {
-    private static final int NUM_PLAYERS = 4;
-    private static final int NUM_CARDS_PER_HAND = 5;
+    private static final int DEFAULT_PLAYERS = 4;
+    private static final int DEFAULT_DECKS = 1;
+    private static final int DEFAULT_CARDS_PER_HAND = 5;
+    private static final double SMALL_CARD_WIDTH = 30;
+    private static final double SELECTED_CARD_LIFT = 15;
+
+    // Table size, read once from --players=, --decks= and --cards= on the command line
+    private int numPlayers;
+    private int numDecks;
+    private int numCardsPerHand;
 
     private List<Player> players;
     private int currentPlayerIndex;
@@ -24,12 +39,32 @@ public class GoBoomGameGUI extends Application {
     private Button drawButton;
     private Button playButton;
     private Button resetButton;
+    private Button watchButton;
+    private Button loadReplayButton;
+    private Button hintButton;
+    private Label hintLabel;
+    private GoBoomHandEvaluator handEvaluator;
+    // Index in the current player's hand of the card Play Card plays; -1 plays the first one
+    private int selectedCard = -1;
     private Label roundLabel;
     private Label trickLabel;
     private VBox playerPanel;
     private HBox centerPanel;
     private Label[] playerLabels;
-    private Rectangle[] cardRectangles;
+    private HBox[] handPanels;
+    private HBox trickPanel;
+    private GoBoomCardAtlas cardAtlas;
+    // Engine card ids of whatever is being shown, reused by every syncCardViews() call
+    private final int[] cardIds = new int[GoBoomEngine.MAX_DECKS * GoBoomEngine.NUM_CARDS];
+
+    // Replay viewer: one archived round at a time, scrubbed by trick or stepped by move
+    private HBox replayPanel;
+    private Slider replayRoundSlider;
+    private Slider replayTrickSlider;
+    private GoBoomReplay.Reader replayReader;
+    private final GoBoomReplay.Game replayGame = new GoBoomReplay.Game();
+    private final GoBoomReplay.Seeker replaySeeker = new GoBoomReplay.Seeker();
+    private boolean updatingReplay;
 
     private int roundNumber;
     private int trickNumber;
@@ -44,50 +79,95 @@ public class GoBoomGameGUI extends Application {
     public void start(Stage primaryStage) {
         primaryStage.setTitle("Go Boom Game");
 
+        Map<String, String> params = getParameters().getNamed();
+        numPlayers = Integer.parseInt(params.getOrDefault("players", Integer.toString(DEFAULT_PLAYERS)));
+        numDecks = Integer.parseInt(params.getOrDefault("decks", Integer.toString(DEFAULT_DECKS)));
+        numCardsPerHand = Integer.parseInt(params.getOrDefault("cards", Integer.toString(DEFAULT_CARDS_PER_HAND)));
+        GoBoomEngine.checkTableSize(numPlayers, numDecks);
+
         // Create UI elements
         startButton = new Button("Start Game");
         drawButton = new Button("Draw Card");
         playButton = new Button("Play Card");
         resetButton = new Button("Reset Game");
+        watchButton = new Button("Watch Bots");
+        loadReplayButton = new Button("Load Replay");
+        hintButton = new Button("Hint");
+        hintLabel = new Label();
+        loadHandEvaluator();
         roundLabel = new Label("Round: 1");
         trickLabel = new Label("Trick: 1");
         playerPanel = new VBox();
         centerPanel = new HBox();
-        playerLabels = new Label[NUM_PLAYERS];
-        cardRectangles = new Rectangle[NUM_CARDS_PER_HAND];
+        trickPanel = new HBox(5);
+        playerLabels = new Label[numPlayers];
+        handPanels = new HBox[numPlayers];
+        cardAtlas = new GoBoomCardAtlas();
 
         // Configure UI elements
         startButton.setOnAction(event -> startGame());
         drawButton.setOnAction(event -> drawCard());
         playButton.setOnAction(event -> playCard());
         resetButton.setOnAction(event -> resetGame());
+        watchButton.setOnAction(event -> new GoBoomCanvasView(numPlayers, numDecks, cardAtlas, System.nanoTime()).show());
+        loadReplayButton.setOnAction(event -> loadReplay());
+        hintButton.setOnAction(event -> showHint());
         resetButton.setDisable(true);
         drawButton.setDisable(true);
         playButton.setDisable(true);
 
-        for (int i = 0; i < NUM_PLAYERS; i++) {
+        for (int i = 0; i < numPlayers; i++) {
             playerLabels[i] = new Label("Player " + (i + 1));
             playerLabels[i].setPadding(new Insets(5));
-            playerPanel.getChildren().add(playerLabels[i]);
+            handPanels[i] = new HBox(2);
+            playerPanel.getChildren().addAll(playerLabels[i], handPanels[i]);
         }
 
         centerPanel.setAlignment(Pos.CENTER);
-
-        for (int i = 0; i < NUM_CARDS_PER_HAND; i++) {
-            cardRectangles[i] = createCardRectangle();
-            centerPanel.getChildren().add(cardRectangles[i]);
-        }
+        // Clicking a card of the hand in the middle picks it for Play Card
+        centerPanel.setOnMouseClicked(event -> {
+            if (players != null && replayReader == null) {
+                selectCard(centerPanel.getChildren().indexOf(event.getPickResult().getIntersectedNode()));
+            }
+        });
+        trickPanel.setAlignment(Pos.CENTER);
+        VBox tablePanel = new VBox(20, trickPanel, centerPanel);
+        tablePanel.setAlignment(Pos.CENTER);
+
+        replayRoundSlider = createReplaySlider();
+        replayTrickSlider = createReplaySlider();
+        replayRoundSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!updatingReplay && newValue.intValue() != oldValue.intValue()) {
+                showReplayRound(newValue.intValue());
+            }
+        });
+        replayTrickSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!updatingReplay && newValue.intValue() != oldValue.intValue() && replaySeeker.getEngine() != null) {
+                replaySeeker.seekTrick(newValue.intValue());
+                showReplayPosition();
+            }
+        });
+        Button previousMoveButton = new Button("<");
+        Button nextMoveButton = new Button(">");
+        previousMoveButton.setOnAction(event -> stepReplay(-1));
+        nextMoveButton.setOnAction(event -> stepReplay(1));
+        replayPanel = new HBox(10, new Label("Round"), replayRoundSlider, new Label("Trick"), replayTrickSlider,
+                previousMoveButton, nextMoveButton);
+        replayPanel.setAlignment(Pos.CENTER_LEFT);
+        replayPanel.setVisible(false);
+        replayPanel.setManaged(false);
 
         // Create the main layout
         BorderPane layout = new BorderPane();
         layout.setPadding(new Insets(10));
         layout.setTop(roundLabel);
-        layout.setCenter(centerPanel);
-        layout.setBottom(trickLabel);
+        layout.setCenter(tablePanel);
+        layout.setBottom(new VBox(5, trickLabel, hintLabel, replayPanel));
 
         VBox buttonPanel = new VBox(10);
         buttonPanel.setAlignment(Pos.CENTER);
-        buttonPanel.getChildren().addAll(startButton, drawButton, playButton, resetButton);
+        buttonPanel.getChildren().addAll(startButton, drawButton, playButton, resetButton, watchButton,
+                loadReplayButton, hintButton);
         layout.setRight(buttonPanel);
 
         layout.setLeft(playerPanel);
@@ -101,12 +181,14 @@ public class GoBoomGameGUI extends Application {
     private class Deck {
         private List<Card> cards;
 
-        public Deck() {
-            cards = new ArrayList<>();
-            for (CardSuit suit : CardSuit.values()) {
-                for (CardRank rank : CardRank.values()) {
-                    Card card = new Card(suit, rank);
-                    cards.add(card);
+        public Deck(int numDecks) {
+            cards = new ArrayList<>(numDecks * CardSuit.values().length * CardRank.values().length);
+            for (int i = 0; i < numDecks; i++) {
+                for (CardSuit suit : CardSuit.values()) {
+                    for (CardRank rank : CardRank.values()) {
+                        Card card = new Card(suit, rank);
+                        cards.add(card);
+                    }
                 }
             }
         }
@@ -150,6 +232,16 @@ public class GoBoomGameGUI extends Application {
             return rank;
         }
 
+        /**
+         * The GoBoomEngine card id, which is also the card's cell in the card atlas.
+         */
+        public int getId() {
+            // Engine suits run clubs, diamonds, hearts, spades and ranks run 2 to A
+            int suitIndex = CardSuit.values().length - 1 - suit.ordinal();
+            int rankIndex = rank == CardRank.ACE ? GoBoomEngine.NUM_RANKS - 1 : rank.ordinal() - 1;
+            return suitIndex * GoBoomEngine.NUM_RANKS + rankIndex;
+        }
+
         @Override
         public String toString() {
             return rank + " of " + suit;
@@ -190,11 +282,14 @@ public class GoBoomGameGUI extends Application {
             return hand;
         }
 
-        public Card playCard() {
+        /**
+         * Plays the card at index in the hand, or the first card if index is not in the hand.
+         */
+        public Card playCard(int index) {
             if (hand.isEmpty()) {
                 return null;
             }
-            return hand.remove(0);
+            return hand.remove(index >= 0 && index < hand.size() ? index : 0);
         }
 
         public boolean hasPlayableCard() {
@@ -217,6 +312,8 @@ public class GoBoomGameGUI extends Application {
     }
     
     private void startGame() {
+        closeReplay();
+
         // Enable/disable appropriate buttons
         startButton.setDisable(true);
         drawButton.setDisable(false);
@@ -230,7 +327,7 @@ public class GoBoomGameGUI extends Application {
         // Implement the logic for starting the game
         players = createPlayers();
         currentPlayerIndex = 0;
-        deck = new Deck();
+        deck = new Deck(numDecks);
         centerCards = new ArrayList<>();
         roundNumber = 1;
         trickNumber = 1;
@@ -245,7 +342,7 @@ public class GoBoomGameGUI extends Application {
         updatePlayerLabels();
         updateRoundLabel();
         updateTrickLabel();
-        updateCardRectangles();
+        updateCardViews();
     }
 
     private void drawCard() {
@@ -256,7 +353,7 @@ public class GoBoomGameGUI extends Application {
         currentPlayer.addCardToHand(card);
 
         // Update UI
-        updateCardRectangles();
+        updateCardViews();
 
         // Check if the drawn card is playable
         if (isPlayable(card)) {
@@ -264,6 +361,7 @@ public class GoBoomGameGUI extends Application {
         } else {
             // Move to the next player's turn
             nextTurn();
+            updateCardViews();
         }
 
         // Disable the draw button if the deck is empty
@@ -274,7 +372,10 @@ public class GoBoomGameGUI extends Application {
 
     private void playCard() {
         Player currentPlayer = players.get(currentPlayerIndex);
-        Card card = currentPlayer.playCard();
+        Card card = currentPlayer.playCard(selectedCard);
+        if (card == null) {
+            return;
+        }
 
         // Remove the played card from the player's hand
         currentPlayer.removeCardFromHand(card);
@@ -283,10 +384,10 @@ public class GoBoomGameGUI extends Application {
         centerCards.add(card);
 
         // Update UI
-        updateCardRectangles();
+        updateCardViews();
 
         // Check if the trick is complete
-        if (centerCards.size() % NUM_PLAYERS == 0) {
+        if (centerCards.size() % numPlayers == 0) {
             determineTrickWinner();
             updateTrickLabel();
             centerCards.clear();
@@ -320,12 +421,13 @@ public class GoBoomGameGUI extends Application {
 
                 // Update UI
                 updatePlayerLabels();
-                updateCardRectangles();
+                updateCardViews();
             }
         }
 
-        // Move to the next player's turn
+        // Move to the next player's turn and turn their hand face up
         nextTurn();
+        updateCardViews();
     }
 
     private void resetGame() {
@@ -344,20 +446,19 @@ public class GoBoomGameGUI extends Application {
         resetButton.setDisable(true);
         roundLabel.setText("Round: 1");
         trickLabel.setText("Trick: 1");
-        playerPanel.getChildren().clear();
-        centerPanel.getChildren().clear();
+        releaseCardViews(centerPanel);
+        releaseCardViews(trickPanel);
 
         // Reset player labels
-        for (int i = 0; i < NUM_PLAYERS; i++) {
-            Label label = new Label("Player " + (i + 1));
-            label.setPadding(new Insets(5));
-            playerPanel.getChildren().add(label);
+        for (int i = 0; i < numPlayers; i++) {
+            playerLabels[i].setText("Player " + (i + 1));
+            releaseCardViews(handPanels[i]);
         }
     }
 
     private void dealCards() {
         for (Player player : players) {
-            for (int i = 0; i < NUM_CARDS_PER_HAND; i++) {
+            for (int i = 0; i < numCardsPerHand; i++) {
                 Card card = deck.drawCard();
                 player.addCardToHand(card);
             }
@@ -365,7 +466,7 @@ public class GoBoomGameGUI extends Application {
     }
 
     private void updatePlayerLabels() {
-        for (int i = 0; i < NUM_PLAYERS; i++) {
+        for (int i = 0; i < numPlayers; i++) {
             Player player = players.get(i);
             Label label = playerLabels[i];
             label.setText("Player " + (i + 1) + " (" + player.getHandSize() + " cards)");
@@ -380,45 +481,333 @@ public class GoBoomGameGUI extends Application {
         trickLabel.setText("Trick: " + trickNumber);
     }
 
-    private void updateCardRectangles() {
-        for (int i = 0; i < NUM_CARDS_PER_HAND; i++) {
-            Rectangle rectangle = cardRectangles[i];
-            Card card = getPlayerCard(i);
-            if (card != null) {
-                rectangle.setFill(getCardColor(card));
-            } else {
-                rectangle.setFill(Color.LIGHTGRAY);
+    private void updateCardViews() {
+        // A hint is only good for the position it was asked in
+        hintLabel.setText("");
+
+        // Only the current player's cards are face up, as at a real table
+        for (int i = 0; i < numPlayers; i++) {
+            syncCardViews(handPanels[i], players.get(i).getHand(), i == currentPlayerIndex, SMALL_CARD_WIDTH);
+        }
+        syncCardViews(centerPanel, players.get(currentPlayerIndex).getHand(), true, GoBoomCardAtlas.CARD_WIDTH);
+        syncCardViews(trickPanel, centerCards, true, GoBoomCardAtlas.CARD_WIDTH);
+        selectCard(-1);
+    }
+
+    /**
+     * Picks the card at index in the current player's hand for Play Card and lifts it in the
+     * middle panel; -1 picks none.
+     */
+    private void selectCard(int index) {
+        selectedCard = index;
+        List<Node> views = centerPanel.getChildren();
+        for (int i = 0; i < views.size(); i++) {
+            views.get(i).setTranslateY(i == index ? -SELECTED_CARD_LIFT : 0);
+        }
+    }
+
+    /**
+     * Makes the panel show the cards, reusing its card views and taking or returning views
+     * from the atlas pool only when the number of cards changes.
+     */
+    private void syncCardViews(Pane panel, List<Card> cards, boolean faceUp, double width) {
+        for (int i = 0; i < cards.size(); i++) {
+            cardIds[i] = cards.get(i).getId();
+        }
+        syncCardViews(panel, cards.size(), faceUp, width);
+    }
+
+    /**
+     * Makes the panel show the first [count] cards of cardIds.
+     */
+    private void syncCardViews(Pane panel, int count, boolean faceUp, double width) {
+        List<Node> views = panel.getChildren();
+        while (views.size() > count) {
+            cardAtlas.release((ImageView) views.remove(views.size() - 1));
+        }
+        while (views.size() < count) {
+            ImageView view = cardAtlas.acquire();
+            view.setFitWidth(width);
+            views.add(view);
+        }
+        for (int i = 0; i < count; i++) {
+            cardAtlas.show((ImageView) views.get(i), cardIds[i], faceUp);
+        }
+    }
+
+    private void releaseCardViews(Pane panel) {
+        for (Node view : panel.getChildren()) {
+            cardAtlas.release((ImageView) view);
+        }
+        panel.getChildren().clear();
+    }
+
+    private Slider createReplaySlider() {
+        Slider slider = new Slider(1, 1, 1);
+        slider.setMajorTickUnit(1);
+        slider.setMinorTickCount(0);
+        slider.setSnapToTicks(true);
+        slider.setBlockIncrement(1);
+        slider.setPrefWidth(200);
+        return slider;
+    }
+
+    private void loadReplay() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Load Replay");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Go Boom replays", "*.gbra"));
+        File file = chooser.showOpenDialog(loadReplayButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        GoBoomReplay.Reader reader;
+        try {
+            reader = new GoBoomReplay.Reader(file.toPath());
+        } catch (IOException | RuntimeException e) {
+            roundLabel.setText("Could not load replay: " + e.getMessage());
+            return;
+        }
+        if (reader.getGameCount() == 0) {
+            roundLabel.setText("The replay archive is empty");
+            closeQuietly(reader);
+            return;
+        }
+
+        resetGame();
+        closeReplay();
+        replayReader = reader;
+        updatingReplay = true;
+        replayRoundSlider.setMax(Math.max(1, reader.getGameCount()));
+        replayRoundSlider.setValue(1);
+        updatingReplay = false;
+        replayPanel.setVisible(true);
+        replayPanel.setManaged(true);
+        showReplayRound(1);
+    }
+
+    private void closeReplay() {
+        if (replayReader != null) {
+            closeQuietly(replayReader);
+            replayReader = null;
+        }
+        clearReplayRound();
+        replayPanel.setVisible(false);
+        replayPanel.setManaged(false);
+    }
+
+    private void closeQuietly(GoBoomReplay.Reader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.out.println("Could not close the replay archive: " + e.getMessage());
+        }
+    }
+
+    private void showReplayRound(int round) {
+        // A damaged round can also fail while its moves are replayed, so the seeker only
+        // keeps a round that loaded completely
+        clearReplayRound();
+        try {
+            replayReader.read(round - 1, replayGame);
+            if (replayGame.numPlayers != numPlayers) {
+                roundLabel.setText("Round " + round + " was played by " + replayGame.numPlayers
+                        + " players; start with --players=" + replayGame.numPlayers + " to view it");
+                return;
+            }
+            replaySeeker.load(replayGame);
+        } catch (IOException | RuntimeException e) {
+            roundLabel.setText("Could not read round " + round + ": " + e.getMessage());
+            clearReplayRound();
+            return;
+        }
+        replayTrickSlider.setDisable(false);
+        updatingReplay = true;
+        replayTrickSlider.setMax(Math.max(1, replaySeeker.getTrickCount()));
+        replayTrickSlider.setValue(1);
+        updatingReplay = false;
+        showReplayPosition();
+    }
+
+    /**
+     * Leaves no round loaded, so the trick slider and step buttons cannot seek into a round
+     * that is no longer shown.
+     */
+    private void clearReplayRound() {
+        replaySeeker.clear();
+        replayTrickSlider.setDisable(true);
+    }
+
+    private void stepReplay(int moves) {
+        if (replayReader == null || replaySeeker.getEngine() == null) {
+            return;
+        }
+        int target = replaySeeker.getPosition() + moves;
+        if (target < 0 || target > replaySeeker.getMoveCount()) {
+            return;
+        }
+        replaySeeker.seek(target);
+        updatingReplay = true;
+        replayTrickSlider.setValue(replaySeeker.getEngine().getTrickNumber());
+        updatingReplay = false;
+        showReplayPosition();
+    }
+
+    /**
+     * Shows the replayed table at the seeker's position, with every hand face up.
+     */
+    private void showReplayPosition() {
+        GoBoomEngine engine = replaySeeker.getEngine();
+        hintLabel.setText("");
+        roundLabel.setText("Round: " + (replayGame.id + 1) + " of " + replayReader.getGameCount());
+        trickLabel.setText("Trick: " + engine.getTrickNumber() + " of " + replaySeeker.getTrickCount()
+                + "   Move: " + replaySeeker.getPosition() + " of " + replaySeeker.getMoveCount());
+
+        for (int i = 0; i < numPlayers; i++) {
+            String status = engine.isRoundOver()
+                    ? (i == engine.getRoundWinner() ? ", won the round" : "")
+                    : (i == engine.getCurrentSeat() ? ", to play" : "");
+            playerLabels[i].setText("Player " + (i + 1) + " (" + engine.getHandSize(i) + " cards, "
+                    + engine.getScore(i) + " tricks" + status + ")");
+            syncCardViews(handPanels[i], handCardIds(engine, i), true, SMALL_CARD_WIDTH);
+        }
+        syncCardViews(centerPanel, handCardIds(engine, engine.getCurrentSeat()), true, GoBoomCardAtlas.CARD_WIDTH);
+
+        // The first trick is led by the card turned up from the deck
+        int count = 0;
+        if (engine.getTrickNumber() == 1) {
+            cardIds[count++] = engine.getFirstLeadCard();
+        }
+        for (int seat = 0; seat < numPlayers; seat++) {
+            if (engine.getTrickCard(seat) >= 0) {
+                cardIds[count++] = engine.getTrickCard(seat);
             }
         }
+        syncCardViews(trickPanel, count, true, GoBoomCardAtlas.CARD_WIDTH);
     }
 
-    private Card getPlayerCard(int index) {
-        if (currentPlayerIndex < players.size()) {
-            Player currentPlayer = players.get(currentPlayerIndex);
-            List<Card> hand = currentPlayer.getHand();
-            if (index < hand.size()) {
-                return hand.get(index);
+    /**
+     * Fills cardIds with the seat's hand, each copy of a card once, and returns how many.
+     */
+    private int handCardIds(GoBoomEngine engine, int seat) {
+        long lo = engine.getHandLo(seat);
+        long hi = engine.getHandHi(seat);
+        int count = 0;
+        for (long cards = lo | hi; cards != 0; cards &= cards - 1) {
+            int card = Long.numberOfTrailingZeros(cards);
+            for (int copies = engine.getCardCount(seat, card); copies > 0; copies--) {
+                cardIds[count++] = card;
             }
         }
-        return null;
+        return count;
     }
 
-    private Color getCardColor(Card card) {
-        // Implement your own logic for assigning colors to cards
-        // For example, use different colors for different ranks or suits
-        // You can define a mapping of colors based on card properties
-        return Color.DARKGRAY;
+    /**
+     * Builds the hint evaluator on a background thread, so simulating its statistics does not
+     * hold up the window, and enables the hint button once it is ready.
+     */
+    private void loadHandEvaluator() {
+        hintButton.setDisable(true);
+        Thread loader = new Thread(() -> {
+            GoBoomHandEvaluator evaluator = createHandEvaluator();
+            Platform.runLater(() -> {
+                handEvaluator = evaluator;
+                hintButton.setDisable(false);
+            });
+        }, "hint-evaluator");
+        loader.setDaemon(true);
+        loader.start();
     }
 
-    private Rectangle createCardRectangle() {
-        Rectangle rectangle = new Rectangle(80, 120);
-        rectangle.setFill(Color.LIGHTGRAY);
-        rectangle.setStroke(Color.BLACK);
-        return rectangle;
+    /**
+     * Uses the card statistics of go_boom_stats.csv (written by GoBoomStats) if it exists,
+     * otherwise simulates a few thousand games, which takes a fraction of a second.
+     */
+    private GoBoomHandEvaluator createHandEvaluator() {
+        Path statsFile = Path.of("go_boom_stats.csv");
+        try {
+            if (Files.exists(statsFile)) {
+                return GoBoomHandEvaluator.fromCsv(statsFile);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read " + statsFile + ", simulating instead: " + e.getMessage());
+        }
+        try {
+            return GoBoomHandEvaluator.fromSimulation(20_000, numPlayers, numDecks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new GoBoomHandEvaluator(new double[GoBoomEngine.NUM_CARDS]);
+        }
+    }
+
+    /**
+     * Suggests a card for whoever is to play, in the replay being viewed or in the game.
+     */
+    private void showHint() {
+        if (replayReader != null && replaySeeker.getEngine() != null) {
+            GoBoomEngine engine = replaySeeker.getEngine();
+            if (engine.isRoundOver()) {
+                hintLabel.setText("The round is over.");
+                return;
+            }
+            int seat = engine.getCurrentSeat();
+            showHint(seat, engine.getHand(seat), engine.legalCards(seat), engine.getLeadCard(),
+                    GoBoomHandEvaluator.seenCards(engine, seat));
+            return;
+        }
+        if (players == null) {
+            hintLabel.setText("Start a game or load a replay first.");
+            return;
+        }
+
+        List<Card> cards = players.get(currentPlayerIndex).getHand();
+        long hand = 0;
+        for (Card card : cards) {
+            hand |= 1L << card.getId();
+        }
+        // Every card not hidden in another hand or the deck has been seen, finished tricks included
+        long hidden = 0;
+        for (Card card : deck.cards) {
+            hidden |= 1L << card.getId();
+        }
+        for (int i = 0; i < numPlayers; i++) {
+            if (i != currentPlayerIndex) {
+                for (Card card : players.get(i).getHand()) {
+                    hidden |= 1L << card.getId();
+                }
+            }
+        }
+        long seen = ((1L << GoBoomEngine.NUM_CARDS) - 1) & ~hidden;
+        int leadCard = centerCards.isEmpty() ? -1 : centerCards.get(0).getId();
+        long legal = leadCard < 0 ? hand : hand & (GoBoomEngine.suitMask(GoBoomEngine.suitOf(leadCard))
+                | GoBoomEngine.rankMask(GoBoomEngine.rankOf(leadCard)));
+        int hinted = showHint(currentPlayerIndex, hand, legal, leadCard, seen);
+
+        // Pick the hinted card, so Play Card plays it
+        for (int i = 0; hinted >= 0 && i < cards.size(); i++) {
+            if (cards.get(i).getId() == hinted) {
+                selectCard(i);
+                hintLabel.setText(hintLabel.getText() + " Press Play Card to play it.");
+                break;
+            }
+        }
+    }
+
+    /**
+     * Shows the hint and returns the hinted card, or -1 if the seat has to draw.
+     */
+    private int showHint(int seat, long hand, long legal, int leadCard, long seen) {
+        if (legal == 0) {
+            hintLabel.setText("Hint: Player " + (seat + 1) + " has no card to play and must draw.");
+            return -1;
+        }
+        int card = handEvaluator.hint(hand, legal, leadCard, seen);
+        hintLabel.setText("Hint: Player " + (seat + 1) + " should play " + GoBoomEngine.cardName(card) + ".");
+        return card;
     }
 
     private void nextTurn() {
-        currentPlayerIndex = (currentPlayerIndex + 1) % NUM_PLAYERS;
+        currentPlayerIndex = (currentPlayerIndex + 1) % numPlayers;
     }
 
     private void determineTrickWinner() {
@@ -451,8 +840,8 @@ public class GoBoomGameGUI extends Application {
     }
 
     private List<Player> createPlayers() {
-        List<Player> players = new ArrayList<>();
-        for (int i = 0; i < NUM_PLAYERS; i++) {
+        List<Player> players = new ArrayList<>(numPlayers);
+        for (int i = 0; i < numPlayers; i++) {
             players.add(new Player());
         }
         return players;
@@ -0,0 +1,234 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Cheap hand-strength heuristic and move hints for Go Boom, fast enough for bot rollouts.
+ *
+ * A hand is looked at one suit at a time: its 13-bit slice of the card mask indexes tables,
+ * built once, that hold how many cards the slice has, its top rank and how many tricks its
+ * cards can be expected to win. The expected tricks come from simulation statistics, the
+ * trick_win_rate rows GoBoomStats writes, either read from its CSV or simulated on the spot.
+ *
+ * The score rewards expected tricks, every suit still held (more leads can be followed
+ * without drawing) and being able to follow the current lead, and penalizes every card still
+ * to be shed and every unseen card of the lead suit that outranks the hand's best one.
+ * Scores are only meant for comparing hands and moves, not as probabilities.
+ */
+public class GoBoomHandEvaluator {
+    private static final int SLICES = 1 << GoBoomEngine.NUM_RANKS;
+    private static final long ALL_CARDS = (1L << GoBoomEngine.NUM_CARDS) - 1;
+    private static final int SCALE = 1000;
+    private static final int CARD_PENALTY = 600;
+    private static final int SUIT_BONUS = 1000;
+    private static final int DRAW_PENALTY = 900;
+    private static final int THREAT_PENALTY = 150;
+    private static final int SAFE_WIN_BONUS = 400;
+
+    private static final byte[] SLICE_COUNT = new byte[SLICES];
+    private static final byte[] SLICE_TOP = new byte[SLICES];
+    // Bits of the ranks above each rank within a suit slice
+    private static final int[] ABOVE = new int[GoBoomEngine.NUM_RANKS];
+
+    static {
+        SLICE_TOP[0] = -1;
+        for (int slice = 1; slice < SLICES; slice++) {
+            SLICE_COUNT[slice] = (byte) Integer.bitCount(slice);
+            SLICE_TOP[slice] = (byte) (31 - Integer.numberOfLeadingZeros(slice));
+        }
+        for (int rank = 0; rank < GoBoomEngine.NUM_RANKS; rank++) {
+            ABOVE[rank] = (SLICES - 1) & ~((2 << rank) - 1);
+        }
+    }
+
+    // Expected tricks won by the cards of a slice, times SCALE, per suit
+    private final int[][] sliceTricks = new int[GoBoomEngine.NUM_SUITS][SLICES];
+
+    /**
+     * Builds the tables from each card's chance of winning the trick it is played to.
+     */
+    public GoBoomHandEvaluator(double[] trickWinRates) {
+        if (trickWinRates.length != GoBoomEngine.NUM_CARDS) {
+            throw new IllegalArgumentException("Need a trick win rate for each of the " + GoBoomEngine.NUM_CARDS + " cards");
+        }
+        for (int suit = 0; suit < GoBoomEngine.NUM_SUITS; suit++) {
+            int[] tricks = sliceTricks[suit];
+            for (int slice = 1; slice < SLICES; slice++) {
+                // Each slice is its lowest card added to a smaller slice
+                int rank = Integer.numberOfTrailingZeros(slice);
+                tricks[slice] = tricks[slice & (slice - 1)]
+                        + (int) Math.round(trickWinRates[suit * GoBoomEngine.NUM_RANKS + rank] * SCALE);
+            }
+        }
+    }
+
+    /**
+     * Uses the trick_win_rate rows of a GoBoomStats CSV file.
+     */
+    public static GoBoomHandEvaluator fromCsv(Path file) throws IOException {
+        double[] rates = new double[GoBoomEngine.NUM_CARDS];
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length == 5 && fields[0].equals("trick_win_rate")) {
+                    int card = GoBoomEngine.cardId(fields[1]);
+                    if (card >= 0) {
+                        rates[card] = Double.parseDouble(fields[4]);
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad number in " + file, e);
+        }
+        return new GoBoomHandEvaluator(rates);
+    }
+
+    /**
+     * Simulates random-bot games with GoBoomStats to get the trick win rates.
+     */
+    public static GoBoomHandEvaluator fromSimulation(long games, int numPlayers, int numDecks)
+            throws InterruptedException {
+        GoBoomStats.Accumulator stats = GoBoomStats.simulate(games, 1, 1, numPlayers, numDecks);
+        double[] rates = new double[GoBoomEngine.NUM_CARDS];
+        for (int card = 0; card < rates.length; card++) {
+            long plays = stats.cardPlays[card];
+            rates[card] = plays == 0 ? 0 : (double) stats.cardTrickWins[card] / plays;
+        }
+        return new GoBoomHandEvaluator(rates);
+    }
+
+    /**
+     * Scores a hand (one bit per distinct card) facing leadCard, or -1 when the seat leads.
+     * seen holds every card known to be out of play or in this hand.
+     */
+    public int evaluate(long hand, int leadCard, long seen) {
+        int score = 0;
+        int size = 0;
+        for (int suit = 0; suit < GoBoomEngine.NUM_SUITS; suit++) {
+            int slice = (int) (hand >>> (suit * GoBoomEngine.NUM_RANKS)) & (SLICES - 1);
+            score += sliceTricks[suit][slice];
+            size += SLICE_COUNT[slice];
+            if (slice != 0) {
+                score += SUIT_BONUS;
+            }
+        }
+        score -= size * CARD_PENALTY;
+        if (leadCard < 0) {
+            return score;
+        }
+
+        int leadSuit = GoBoomEngine.suitOf(leadCard);
+        int shift = leadSuit * GoBoomEngine.NUM_RANKS;
+        int suitSlice = (int) (hand >>> shift) & (SLICES - 1);
+        boolean canFollow = suitSlice != 0 || (hand & GoBoomEngine.rankMask(GoBoomEngine.rankOf(leadCard))) != 0;
+        if (!canFollow) {
+            return score - DRAW_PENALTY;
+        }
+        if (suitSlice != 0) {
+            int unseen = (int) (~(seen | hand) >>> shift) & (SLICES - 1);
+            score -= SLICE_COUNT[unseen & ABOVE[SLICE_TOP[suitSlice]]] * THREAT_PENALTY;
+        }
+        return score;
+    }
+
+    /**
+     * The legal card that leaves the best hand, counting a bonus for a card of the lead suit
+     * that no unseen card can beat.
+     */
+    public int hint(long hand, long legalCards, int leadCard, long seen) {
+        int best = Long.numberOfTrailingZeros(legalCards);
+        int bestScore = Integer.MIN_VALUE;
+        for (long cards = legalCards; cards != 0; cards &= cards - 1) {
+            int card = Long.numberOfTrailingZeros(cards);
+            long played = 1L << card;
+            int score = evaluate(hand & ~played, -1, seen | played);
+
+            int lead = leadCard < 0 ? card : leadCard;
+            int suit = GoBoomEngine.suitOf(lead);
+            if (GoBoomEngine.suitOf(card) == suit) {
+                int unseen = (int) (~(seen | hand) >>> (suit * GoBoomEngine.NUM_RANKS)) & (SLICES - 1);
+                if ((unseen & ABOVE[GoBoomEngine.rankOf(card)]) == 0) {
+                    score += SAFE_WIN_BONUS;
+                }
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = card;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Cards a seat of the engine can account for: everything not hidden in another hand or
+     * the deck, so its own hand, the trick on the table, finished tricks and the first lead
+     * card.
+     */
+    public static long seenCards(GoBoomEngine engine, int seat) {
+        long hidden = engine.getDeckCards();
+        for (int i = 0; i < engine.getNumPlayers(); i++) {
+            if (i != seat) {
+                hidden |= engine.getHand(i);
+            }
+        }
+        return ALL_CARDS & ~hidden;
+    }
+
+    /**
+     * A bot that plays the hinted card.
+     */
+    public GoBoomEngine.Strategy asStrategy() {
+        return (engine, seat, legalCards) -> hint(engine.getHand(seat), legalCards, engine.getLeadCard(),
+                seenCards(engine, seat));
+    }
+
+    /**
+     * Measures evaluations per second on random hands, then plays the hint bot against three
+     * random bots.
+     *
+     * Usage: java GoBoomHandEvaluator [stats.csv]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        GoBoomHandEvaluator evaluator = args.length > 0
+                ? fromCsv(Path.of(args[0]))
+                : fromSimulation(20_000, 4, 1);
+
+        int count = 1 << 16;
+        long[] hands = new long[count];
+        long[] seen = new long[count];
+        int[] leads = new int[count];
+        for (int i = 0; i < count; i++) {
+            long bits = GoBoomEngine.mix(i) & GoBoomEngine.mix(i + count) & ((1L << GoBoomEngine.NUM_CARDS) - 1);
+            hands[i] = bits;
+            seen[i] = bits | (GoBoomEngine.mix(i * 3L) & GoBoomEngine.mix(i * 7L) & ((1L << GoBoomEngine.NUM_CARDS) - 1));
+            leads[i] = (int) ((GoBoomEngine.mix(i * 11L) >>> 1) % (GoBoomEngine.NUM_CARDS + 1)) - 1;
+        }
+        long checksum = 0;
+        int rounds = 400;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < count; i++) {
+                    checksum += evaluator.evaluate(hands[i], leads[i], seen[i]);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%.1fM evaluations/s (checksum %d)%n", (double) rounds * count / seconds / 1e6, checksum);
+        }
+
+        GoBoomEngine engine = new GoBoomEngine();
+        GoBoomEngine.Strategy[] seats = {evaluator.asStrategy(), GoBoomBots.randomCard(1),
+                GoBoomBots.randomCard(2), GoBoomBots.randomCard(3)};
+        int games = 100_000;
+        int wins = 0;
+        for (int game = 0; game < games; game++) {
+            engine.newRound(GoBoomEngine.mix(game));
+            if (engine.playRound(seats) == 0) {
+                wins++;
+            }
+        }
+        System.out.printf("Hint bot won %.1f%% of %d games against three random bots%n", 100.0 * wins / games, games);
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Undo, redo and "what if" branching for a GoBoomEngine round.
+ *
+ * Instead of copying the table for every position, the history is a tree of moves. Each node
+ * keeps only its move and the engine's packed turnState() from just before it, which is all
+ * undoMove() needs, so trying another move costs one small node no matter how big the table
+ * is. Moving between any two positions undoes up to their common ancestor and replays down,
+ * touching only the moves in between.
+ *
+ * The console game plays by its own rules rather than the engine's, so GoBoomGame keeps an
+ * undo tree of the same shape for its u (undo) and y (redo) commands.
+ */
+public class GoBoomHistory {
+    /**
+     * One move in the tree. The root node stands for the position the history started from.
+     */
+    public static class Node {
+        private final Node parent;
+        private final int move;
+        private final long before;
+        private final int depth;
+        private Node firstChild;
+        private Node nextSibling;
+        // The child redo() follows: the one most recently played or returned from
+        private Node redoChild;
+
+        private Node(Node parent, int move, long before) {
+            this.parent = parent;
+            this.move = move;
+            this.before = before;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        public Node getParent() {
+            return parent;
+        }
+
+        public int getMove() {
+            return move;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public List<Node> getChildren() {
+            List<Node> children = new ArrayList<>();
+            for (Node child = firstChild; child != null; child = child.nextSibling) {
+                children.add(child);
+            }
+            return children;
+        }
+    }
+
+    private final GoBoomEngine engine;
+    private final Node root;
+    private Node current;
+
+    /**
+     * Starts a history at the engine's current position. From now on the engine should only
+     * be moved through this history.
+     */
+    public GoBoomHistory(GoBoomEngine engine) {
+        this.engine = engine;
+        root = new Node(null, -1, 0);
+        current = root;
+    }
+
+    /**
+     * Applies a move. If the same move was already tried from this position the existing
+     * branch is reused, otherwise a new branch is started next to the others.
+     */
+    public Node play(int move) {
+        if (GoBoomEngine.moveType(move) == GoBoomEngine.MOVE_DRAW) {
+            // chooseMove() puts the deck card in a draw, but a draw always takes the top card;
+            // without the card two identical draws would start two branches
+            move = GoBoomEngine.encodeMove(GoBoomEngine.MOVE_DRAW, 0);
+        }
+        long before = engine.turnState();
+        engine.applyMove(move);
+
+        Node child = current.firstChild;
+        while (child != null && child.move != move) {
+            child = child.nextSibling;
+        }
+        if (child == null) {
+            child = new Node(current, move, before);
+            child.nextSibling = current.firstChild;
+            current.firstChild = child;
+        }
+        current.redoChild = child;
+        current = child;
+        return child;
+    }
+
+    /**
+     * Lets the current seat's strategy pick the next move and records it.
+     */
+    public Node step(GoBoomEngine.Strategy[] strategies) {
+        return play(engine.chooseMove(strategies));
+    }
+
+    public boolean canUndo() {
+        return current != root;
+    }
+
+    public boolean canRedo() {
+        return current.redoChild != null;
+    }
+
+    public boolean undo() {
+        if (current == root) {
+            return false;
+        }
+        engine.undoMove(current.move, current.before);
+        current.parent.redoChild = current;
+        current = current.parent;
+        return true;
+    }
+
+    public boolean redo() {
+        Node child = current.redoChild;
+        if (child == null) {
+            return false;
+        }
+        engine.applyMove(child.move);
+        current = child;
+        return true;
+    }
+
+    /**
+     * Takes back the last move and plays another one in its place, keeping the original line
+     * as a sibling branch.
+     */
+    public Node whatIf(int move) {
+        if (!undo()) {
+            throw new IllegalStateException("There is no move to replace");
+        }
+        return play(move);
+    }
+
+    /**
+     * Moves the engine to any position in the tree.
+     */
+    public void goTo(Node target) {
+        List<Node> path = new ArrayList<>();
+        Node down = target;
+        while (down.depth > current.depth) {
+            path.add(down);
+            down = down.parent;
+        }
+        while (current.depth > down.depth) {
+            undo();
+        }
+        while (current != down) {
+            undo();
+            path.add(down);
+            down = down.parent;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            engine.applyMove(node.move);
+            current.redoChild = node;
+            current = node;
+        }
+    }
+
+    public Node getRoot() {
+        return root;
+    }
+
+    public Node getCurrent() {
+        return current;
+    }
+
+    public GoBoomEngine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+
+/**
+ * Elo ladder for bot strategies, played out on GoBoomEngine.
+ *
+ * Every pair of strategies plays matches on a table whose seats alternate between the two:
+ * one round, then the same deal again with the seats swapped, so neither side profits from a
+ * lucky deal or seat. Worker threads each take the next undecided pair, play a batch of
+ * matches on their own engine and post the results without any shared lock: ratings are
+ * doubles stored in an AtomicLongArray and updated with compare-and-set, and win counts are
+ * plain atomic increments.
+ *
+ * A pair stops being scheduled as soon as its result is settled: either one side's win rate is
+ * outside an anytime-valid Hoeffding bound around 1/2 (so checking after every batch does not
+ * inflate the error rate), or the bound has shrunk below MARGIN and the two are as good as
+ * equal. The ladder finishes when every pair is settled or the game budget is spent.
+ */
+public class GoBoomRatingLadder {
+    public static final double INITIAL_RATING = 1500;
+    private static final double K_FACTOR = 8;
+    private static final double MARGIN = 0.01;
+    private static final int BATCH_MATCHES = 32;
+    private static final int MIN_GAMES = 200;
+
+    private final int numPlayers;
+    private final int numDecks;
+    private final List<String> names = new ArrayList<>();
+    private final List<IntFunction<GoBoomEngine.Strategy>> factories = new ArrayList<>();
+
+    // Filled in by run()
+    private AtomicLongArray ratings;
+    private AtomicLongArray pairGames;
+    private AtomicLongArray pairWins;
+    private AtomicIntegerArray settled;
+    private int[] pairFirst;
+    private int[] pairSecond;
+
+    public GoBoomRatingLadder(int numPlayers, int numDecks) {
+        GoBoomEngine.checkTableSize(numPlayers, numDecks);
+        this.numPlayers = numPlayers;
+        this.numDecks = numDecks;
+    }
+
+    /**
+     * Adds a strategy to the ladder. The factory is called once per worker thread with the
+     * thread's number, since strategies may keep state.
+     */
+    public void register(String name, IntFunction<GoBoomEngine.Strategy> factory) {
+        names.add(name);
+        factories.add(factory);
+    }
+
+    /**
+     * Plays until every pair is settled or maxGames rounds have been played, and returns the
+     * number of rounds played.
+     *
+     * @param confidence chance that no settled pair has its winner wrong, e.g. 0.99
+     */
+    public long run(int threads, long maxGames, double confidence, long seed) throws InterruptedException {
+        int count = names.size();
+        if (count < 2) {
+            throw new IllegalStateException("The ladder needs at least two strategies");
+        }
+        int pairs = count * (count - 1) / 2;
+        pairFirst = new int[pairs];
+        pairSecond = new int[pairs];
+        for (int a = 0, pair = 0; a < count; a++) {
+            for (int b = a + 1; b < count; b++, pair++) {
+                pairFirst[pair] = a;
+                pairSecond[pair] = b;
+            }
+        }
+
+        ratings = new AtomicLongArray(count);
+        for (int i = 0; i < count; i++) {
+            ratings.set(i, Double.doubleToRawLongBits(INITIAL_RATING));
+        }
+        pairGames = new AtomicLongArray(pairs);
+        pairWins = new AtomicLongArray(pairs);
+        settled = new AtomicIntegerArray(pairs);
+        AtomicInteger unsettled = new AtomicInteger(pairs);
+        AtomicInteger nextPair = new AtomicInteger();
+        AtomicLong gamesPlayed = new AtomicLong();
+        // Split the error budget over all pairs, each checked at every batch
+        double delta = (1 - confidence) / pairs;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                GoBoomEngine engine = new GoBoomEngine(numPlayers, numDecks);
+                GoBoomEngine.Strategy[] own = new GoBoomEngine.Strategy[count];
+                for (int i = 0; i < count; i++) {
+                    own[i] = factories.get(i).apply(thread);
+                }
+                GoBoomEngine.Strategy[] seats = new GoBoomEngine.Strategy[numPlayers];
+
+                while (unsettled.get() > 0 && gamesPlayed.get() < maxGames) {
+                    int pair = nextUnsettledPair(nextPair, pairs);
+                    if (pair < 0) {
+                        break;
+                    }
+                    long base = gamesPlayed.getAndAdd(2 * BATCH_MATCHES);
+                    for (int match = 0; match < BATCH_MATCHES; match++) {
+                        long dealSeed = GoBoomEngine.mix(seed + base + match);
+                        playGame(engine, seats, own, pair, dealSeed, false);
+                        playGame(engine, seats, own, pair, dealSeed, true);
+                    }
+                    if (isSettled(pair, delta) && settled.compareAndSet(pair, 0, 1)) {
+                        unsettled.decrementAndGet();
+                    }
+                }
+            }, "ladder-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return gamesPlayed.get();
+    }
+
+    private int nextUnsettledPair(AtomicInteger nextPair, int pairs) {
+        for (int tries = 0; tries < pairs; tries++) {
+            int pair = Math.floorMod(nextPair.getAndIncrement(), pairs);
+            if (settled.get(pair) == 0) {
+                return pair;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Plays one round with the pair's strategies on alternating seats and records it.
+     */
+    private void playGame(GoBoomEngine engine, GoBoomEngine.Strategy[] seats, GoBoomEngine.Strategy[] own,
+                          int pair, long dealSeed, boolean swapped) {
+        int first = pairFirst[pair];
+        int second = pairSecond[pair];
+        for (int seat = 0; seat < numPlayers; seat++) {
+            seats[seat] = ((seat & 1) == 0) != swapped ? own[first] : own[second];
+        }
+        engine.newRound(dealSeed);
+        int winner = engine.playRound(seats);
+        boolean firstWon = ((winner & 1) == 0) != swapped;
+
+        pairGames.incrementAndGet(pair);
+        if (firstWon) {
+            pairWins.incrementAndGet(pair);
+        }
+
+        double expected = 1 / (1 + Math.pow(10, (getRating(second) - getRating(first)) / 400));
+        double change = K_FACTOR * ((firstWon ? 1 : 0) - expected);
+        addRating(first, change);
+        addRating(second, -change);
+    }
+
+    private void addRating(int strategy, double change) {
+        long old;
+        long updated;
+        do {
+            old = ratings.get(strategy);
+            updated = Double.doubleToRawLongBits(Double.longBitsToDouble(old) + change);
+        } while (!ratings.compareAndSet(strategy, old, updated));
+    }
+
+    /**
+     * Whether the pair's first strategy is known to win more or less than half its games, or
+     * known to be within MARGIN of half.
+     */
+    private boolean isSettled(int pair, double delta) {
+        long games = pairGames.get(pair);
+        if (games < MIN_GAMES) {
+            return false;
+        }
+        double radius = confidenceRadius(games, delta);
+        double winRate = (double) pairWins.get(pair) / games;
+        return Math.abs(winRate - 0.5) > radius || radius < MARGIN;
+    }
+
+    /**
+     * Hoeffding bound made valid at every sample size at once by spending delta / n^2 at n.
+     * Consecutive games of a match share a deal, so this counts matches, not games.
+     */
+    static double confidenceRadius(long games, double delta) {
+        double matches = games / 2.0;
+        return Math.sqrt(Math.log(2 * matches * matches * Math.PI * Math.PI / (6 * delta)) / (2 * matches));
+    }
+
+    public int getStrategyCount() {
+        return names.size();
+    }
+
+    public String getName(int strategy) {
+        return names.get(strategy);
+    }
+
+    public double getRating(int strategy) {
+        return Double.longBitsToDouble(ratings.get(strategy));
+    }
+
+    /**
+     * Prints the strategies from best to worst, then every pair's result.
+     */
+    public void printTable() {
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(getRating(b), getRating(a)));
+        for (int rank = 0; rank < order.length; rank++) {
+            System.out.printf("%2d. %-12s %7.1f%n", rank + 1, names.get(order[rank]), getRating(order[rank]));
+        }
+        for (int pair = 0; pair < pairFirst.length; pair++) {
+            long games = pairGames.get(pair);
+            System.out.printf("    %-12s vs %-12s %6.1f%% of %d games%s%n", names.get(pairFirst[pair]),
+                    names.get(pairSecond[pair]), games == 0 ? 0 : 100.0 * pairWins.get(pair) / games, games,
+                    settled.get(pair) != 0 ? "" : " (not settled)");
+        }
+    }
+
+    /**
+     * Rates the built-in bots and reports how many games the early stop saved.
+     *
+     * Usage: java GoBoomRatingLadder [maxGames] [threads] [confidence] [players] [decks]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long maxGames = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double confidence = args.length > 2 ? Double.parseDouble(args[2]) : 0.99;
+        int numPlayers = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int numDecks = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        GoBoomRatingLadder ladder = new GoBoomRatingLadder(numPlayers, numDecks);
+        ladder.register("lowest", thread -> GoBoomBots.lowestCard());
+        ladder.register("highest", thread -> GoBoomBots.highestCard());
+        ladder.register("random", thread -> GoBoomBots.randomCard(thread));
+        ladder.register("endgame", thread -> new GoBoomEndgameSolver(numPlayers, numDecks)
+                .asStrategy(GoBoomBots.highestCard(), 10));
+
+        long start = System.nanoTime();
+        long games = ladder.run(threads, maxGames, confidence, 1);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        ladder.printTable();
+        System.out.printf("%d games in %.2f s on %d threads (%.0f games/s), %.1f%% of the %d game budget%n",
+                games, seconds, threads, games / seconds, 100.0 * games / maxGames, maxGames);
+    }
+}
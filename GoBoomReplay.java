@@ -0,0 +1,610 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact archive format for finished GoBoomEngine rounds.
+ *
+ * A game is stored as its shuffle seed, its table size and its move stream. Every move is one
+ * 6-bit symbol, 0-51 for playing that card, 52 for a draw and 53 for a pass, and four symbols
+ * are packed into three bytes. Draws do not need their card because replaying the moves from
+ * newRound(seed) deals the same deck again.
+ *
+ * Archive file layout, little-endian:
+ * <pre>
+ *   header  "GBRA" magic, format version, games per block
+ *   blocks  stored length, raw length, block bytes (deflated unless both lengths are equal)
+ *   index   file offset of every block
+ *   footer  index offset, game count, "GBRA" magic
+ * </pre>
+ * A raw block starts with the offset of every game in it, followed by the game records:
+ * seed (8 bytes), players and decks (1 byte each), move count (varint) and the packed moves.
+ * Blocks that deflate does not shrink by at least a tenth are stored as they are, which is
+ * the usual case for move streams and keeps random access to a copy. Game ids are their
+ * position in the archive, so a lookup is one index read and at most one block decode. Files
+ * are limited to 2 GB so a reader can map them whole; write more
+ * archives to keep more games.
+ */
+public class GoBoomReplay {
+    private static final int MAGIC = 0x41524247; // "GBRA" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int FOOTER_SIZE = 20;
+    public static final int DEFAULT_GAMES_PER_BLOCK = 32;
+
+    private static final int SYMBOL_DRAW = GoBoomEngine.NUM_CARDS;
+    private static final int SYMBOL_PASS = GoBoomEngine.NUM_CARDS + 1;
+
+    /**
+     * One archived game, with moves in the GoBoomEngine encoding. Draws read back from an
+     * archive carry card 0. Readers reuse the same instance, so copy what you need to keep.
+     */
+    public static class Game {
+        public long id;
+        public long seed;
+        public int numPlayers;
+        public int numDecks;
+        public int moveCount;
+        public byte[] moves = new byte[256];
+
+        /**
+         * Sets the engine to the start of this game and applies its first [count] moves.
+         */
+        public void replay(GoBoomEngine engine, int count) {
+            engine.newRound(seed);
+            for (int i = 0; i < count; i++) {
+                engine.applyMove(moves[i] & 0xFF);
+            }
+        }
+
+        void ensureCapacity(int count) {
+            if (moves.length < count) {
+                moves = Arrays.copyOf(moves, Math.max(count, moves.length * 2));
+            }
+        }
+    }
+
+    /**
+     * Moves an engine to any point of one game, forwards or backwards, in bounded time.
+     *
+     * Loading a game replays it once, keeping an engine snapshot (GoBoomEngine.writeState())
+     * every KEYFRAME_INTERVAL moves and the move at which each trick starts. A seek then
+     * restores the nearest snapshot at or before the target and applies fewer than
+     * KEYFRAME_INTERVAL moves, however long the game is, or just steps forward when the target
+     * is a little ahead.
+     */
+    public static class Seeker {
+        public static final int KEYFRAME_INTERVAL = 64;
+
+        private final Game game = new Game();
+        private GoBoomEngine engine;
+        private ByteBuffer keyframes = ByteBuffer.allocate(0);
+        private int stateSize;
+        private int[] trickStarts = new int[64];
+        private int trickCount;
+        private int position;
+
+        /**
+         * Forgets the loaded game; getEngine() returns null until the next load().
+         */
+        public void clear() {
+            engine = null;
+            game.moveCount = 0;
+            trickCount = 0;
+            position = 0;
+        }
+
+        /**
+         * Copies the game and indexes it. The engine afterwards stands at the start of it.
+         */
+        public void load(Game source) {
+            game.id = source.id;
+            game.seed = source.seed;
+            game.numPlayers = source.numPlayers;
+            game.numDecks = source.numDecks;
+            game.moveCount = source.moveCount;
+            game.ensureCapacity(source.moveCount);
+            System.arraycopy(source.moves, 0, game.moves, 0, source.moveCount);
+
+            if (engine == null || engine.getNumPlayers() != game.numPlayers || engine.getNumDecks() != game.numDecks) {
+                engine = new GoBoomEngine(game.numPlayers, game.numDecks);
+                stateSize = engine.getStateSize();
+            }
+            int keyframeCount = game.moveCount / KEYFRAME_INTERVAL + 1;
+            if (keyframes.capacity() < keyframeCount * stateSize) {
+                keyframes = ByteBuffer.allocate(keyframeCount * stateSize);
+            }
+
+            engine.newRound(game.seed);
+            keyframes.clear();
+            trickStarts[0] = 0;
+            trickCount = 1;
+            for (int i = 0; i < game.moveCount; i++) {
+                if (i % KEYFRAME_INTERVAL == 0) {
+                    engine.writeState(keyframes);
+                }
+                int trick = engine.getTrickNumber();
+                engine.applyMove(game.moves[i] & 0xFF);
+                if (engine.getTrickNumber() != trick && !engine.isRoundOver()) {
+                    if (trickCount == trickStarts.length) {
+                        trickStarts = Arrays.copyOf(trickStarts, trickCount * 2);
+                    }
+                    trickStarts[trickCount++] = i + 1;
+                }
+            }
+            if (game.moveCount % KEYFRAME_INTERVAL == 0) {
+                engine.writeState(keyframes);
+            }
+            position = game.moveCount;
+            seek(0);
+        }
+
+        /**
+         * Puts the engine just after the first [move] moves of the game.
+         */
+        public void seek(int move) {
+            if (move < 0 || move > game.moveCount) {
+                throw new IndexOutOfBoundsException("Move " + move + " is outside a game of " + game.moveCount);
+            }
+            if (move < position || move - position >= KEYFRAME_INTERVAL) {
+                int keyframe = move / KEYFRAME_INTERVAL;
+                keyframes.position(keyframe * stateSize);
+                engine.readState(keyframes);
+                position = keyframe * KEYFRAME_INTERVAL;
+            }
+            while (position < move) {
+                engine.applyMove(game.moves[position++] & 0xFF);
+            }
+        }
+
+        /**
+         * Puts the engine at the start of a trick, numbered from 1 like getTrickNumber().
+         */
+        public void seekTrick(int trick) {
+            if (trick < 1 || trick > trickCount) {
+                throw new IndexOutOfBoundsException("Trick " + trick + " is outside a game of " + trickCount);
+            }
+            seek(trickStarts[trick - 1]);
+        }
+
+        public GoBoomEngine getEngine() {
+            return engine;
+        }
+
+        public Game getGame() {
+            return game;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public int getMoveCount() {
+            return game.moveCount;
+        }
+
+        public int getTrickCount() {
+            return trickCount;
+        }
+    }
+
+    /**
+     * Plays a round with the given strategies and records it into game.
+     */
+    public static void record(GoBoomEngine engine, GoBoomEngine.Strategy[] strategies, long seed, Game game) {
+        engine.newRound(seed);
+        game.seed = seed;
+        game.numPlayers = engine.getNumPlayers();
+        game.numDecks = engine.getNumDecks();
+        game.moveCount = 0;
+        while (!engine.isRoundOver()) {
+            int move = engine.step(strategies);
+            game.ensureCapacity(game.moveCount + 1);
+            game.moves[game.moveCount++] = (byte) move;
+        }
+    }
+
+    /**
+     * Appends games to a new archive file. Not thread-safe.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final int gamesPerBlock;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private ByteBuffer block = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private ByteBuffer compressed = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private final int[] gameOffsets;
+        private long[] blockOffsets = new long[64];
+        private int blockCount;
+        private int gamesInBlock;
+        private long gameCount;
+
+        public Writer(Path file) throws IOException {
+            this(file, DEFAULT_GAMES_PER_BLOCK);
+        }
+
+        public Writer(Path file, int gamesPerBlock) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.gamesPerBlock = gamesPerBlock;
+            gameOffsets = new int[gamesPerBlock];
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(gamesPerBlock).flip();
+            writeFully(header);
+        }
+
+        /**
+         * Adds a game and returns its id in this archive.
+         */
+        public long add(Game game) throws IOException {
+            ensureBlockSpace(packedLength(game.moveCount) + 16);
+            gameOffsets[gamesInBlock++] = block.position();
+            block.putLong(game.seed);
+            block.put((byte) game.numPlayers);
+            block.put((byte) game.numDecks);
+            for (int count = game.moveCount; ; count >>>= 7) {
+                if (count < 0x80) {
+                    block.put((byte) count);
+                    break;
+                }
+                block.put((byte) (count | 0x80));
+            }
+            pack(game.moves, game.moveCount, block);
+
+            if (gamesInBlock == gamesPerBlock) {
+                flushBlock();
+            }
+            return gameCount++;
+        }
+
+        private void ensureBlockSpace(int bytes) {
+            if (block.remaining() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(block.capacity() * 2, block.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                block.flip();
+                bigger.put(block);
+                block = bigger;
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (gamesInBlock == 0) {
+                return;
+            }
+
+            // Prefix the records with their offsets, shifted past the offset table itself
+            int tableSize = 4 + 4 * gamesInBlock;
+            int rawLength = tableSize + block.position();
+            byte[] raw = new byte[rawLength];
+            ByteBuffer rawBuffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+            rawBuffer.putInt(gamesInBlock);
+            for (int i = 0; i < gamesInBlock; i++) {
+                rawBuffer.putInt(tableSize + gameOffsets[i]);
+            }
+            rawBuffer.put(block.array(), 0, block.position());
+
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            if (compressed.capacity() < rawLength + 64) {
+                compressed = ByteBuffer.allocate(rawLength + 64).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            compressed.clear();
+            int length = deflater.deflate(compressed.array(), 8, compressed.capacity() - 8);
+            if (!deflater.finished() || length > rawLength - rawLength / 10) {
+                System.arraycopy(raw, 0, compressed.array(), 8, rawLength);
+                length = rawLength;
+            }
+            compressed.putInt(0, length).putInt(4, rawLength);
+            compressed.limit(8 + length);
+
+            if (blockCount == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            }
+            blockOffsets[blockCount++] = channel.position();
+            if (channel.position() + compressed.limit() > Integer.MAX_VALUE) {
+                throw new IOException("Archive is full, start a new file");
+            }
+            writeFully(compressed);
+
+            block.clear();
+            gamesInBlock = 0;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushBlock();
+            long indexOffset = channel.position();
+            ByteBuffer index = ByteBuffer.allocate(8 * blockCount + FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < blockCount; i++) {
+                index.putLong(blockOffsets[i]);
+            }
+            index.putLong(indexOffset).putLong(gameCount).putInt(MAGIC).flip();
+            writeFully(index);
+            channel.close();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads an archive through a read-only memory map. The last inflated block is cached, so
+     * scanning in id order inflates each block once. Not thread-safe; open one reader per
+     * thread, they share the operating system's page cache.
+     */
+    public static class Reader implements Closeable {
+        private final FileChannel channel;
+        private final MappedByteBuffer map;
+        private final int gamesPerBlock;
+        private final long indexOffset;
+        private final long gameCount;
+        private final Inflater inflater = new Inflater();
+        private byte[] compressed = new byte[64 * 1024];
+        private byte[] raw = new byte[64 * 1024];
+        private ByteBuffer rawBuffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        private long cachedBlock = -1;
+        private int cachedLength;
+
+        /**
+         * Opens an archive. Everything the file says about its own layout is checked before it
+         * is used, here or when a block is first read, so a damaged archive fails with an
+         * IOException rather than an arithmetic or index error.
+         */
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Archive is larger than 2 GB");
+                }
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                map.order(ByteOrder.LITTLE_ENDIAN);
+
+                int footer = map.capacity() - FOOTER_SIZE;
+                if (map.capacity() < HEADER_SIZE + FOOTER_SIZE || map.getInt(0) != MAGIC
+                        || map.getInt(footer + 16) != MAGIC) {
+                    throw new IOException("Not a Go Boom replay archive");
+                }
+                if (map.getInt(4) != VERSION) {
+                    throw new IOException("Unsupported archive version " + map.getInt(4));
+                }
+                gamesPerBlock = map.getInt(8);
+                indexOffset = map.getLong(footer);
+                gameCount = map.getLong(footer + 8);
+                if (gamesPerBlock <= 0) {
+                    throw new IOException("Corrupt archive: " + gamesPerBlock + " games per block");
+                }
+                // Every block takes at least its 8-byte index entry, which bounds the game count
+                if (gameCount < 0 || gameCount > (long) footer / 8 * gamesPerBlock) {
+                    throw new IOException("Corrupt archive: " + gameCount + " games");
+                }
+                long blockCount = (gameCount + gamesPerBlock - 1) / gamesPerBlock;
+                if (indexOffset < HEADER_SIZE || indexOffset + 8 * blockCount > footer) {
+                    throw new IOException("Corrupt archive: the block index does not fit before the footer");
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public long getGameCount() {
+            return gameCount;
+        }
+
+        /**
+         * Reads the game with the given id into game and returns it.
+         */
+        public Game read(long id, Game game) throws IOException {
+            if (id < 0 || id >= gameCount) {
+                throw new IndexOutOfBoundsException("No game " + id + " in an archive of " + gameCount);
+            }
+            long blockIndex = id / gamesPerBlock;
+            loadBlock(blockIndex);
+
+            int slot = (int) (id % gamesPerBlock);
+            int tableSize = 4 + 4 * (slot + 1);
+            int offset = tableSize <= cachedLength ? rawBuffer.getInt(tableSize - 4) : -1;
+            if (offset < tableSize || offset > cachedLength - 11) {
+                throw new IOException("Block " + blockIndex + " has no record for game " + id);
+            }
+            game.id = id;
+            game.seed = rawBuffer.getLong(offset);
+            game.numPlayers = raw[offset + 8];
+            game.numDecks = raw[offset + 9];
+            int pos = offset + 10;
+            int count = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (pos == cachedLength || shift > 28) {
+                    throw new IOException("Game " + id + " has a corrupt move count");
+                }
+                byte b = raw[pos++];
+                count |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (count < 0 || count * 6L > (cachedLength - pos) * 8L) {
+                throw new IOException("Game " + id + " runs past the end of its block");
+            }
+            try {
+                GoBoomEngine.checkTableSize(game.numPlayers, game.numDecks);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Game " + id + " has a corrupt table size", e);
+            }
+            game.moveCount = count;
+            game.ensureCapacity(count);
+            unpack(raw, pos, count, game.moves);
+            return game;
+        }
+
+        private void loadBlock(long blockIndex) throws IOException {
+            if (blockIndex == cachedBlock) {
+                return;
+            }
+            long blockOffset = map.getLong((int) (indexOffset + 8 * blockIndex));
+            if (blockOffset < HEADER_SIZE || blockOffset > indexOffset - 8) {
+                throw new IOException("Block " + blockIndex + " is outside the archive");
+            }
+            int length = map.getInt((int) blockOffset);
+            int rawLength = map.getInt((int) blockOffset + 4);
+            // Deflate never shrinks data more than about 1032 to 1
+            if (length < 0 || length > indexOffset - blockOffset - 8 || rawLength < 4
+                    || (length != rawLength && rawLength > 1032L * length + 64)) {
+                throw new IOException("Block " + blockIndex + " has a corrupt length");
+            }
+            if (compressed.length < length) {
+                compressed = new byte[length];
+            }
+            if (raw.length < rawLength) {
+                raw = new byte[rawLength];
+                rawBuffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            // Forgotten until the block is complete, so a failed read is not mistaken for it
+            cachedBlock = -1;
+            if (length == rawLength) {
+                map.get((int) blockOffset + 8, raw, 0, rawLength);
+                cachedBlock = blockIndex;
+                cachedLength = rawLength;
+                return;
+            }
+            map.get((int) blockOffset + 8, compressed, 0, length);
+
+            inflater.reset();
+            inflater.setInput(compressed, 0, length);
+            try {
+                if (inflater.inflate(raw, 0, rawLength) != rawLength) {
+                    throw new IOException("Block " + blockIndex + " is truncated");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Block " + blockIndex + " is corrupt", e);
+            }
+            cachedBlock = blockIndex;
+            cachedLength = rawLength;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            channel.close();
+        }
+    }
+
+    static int packedLength(int moveCount) {
+        return (moveCount * 6 + 7) / 8;
+    }
+
+    private static int toSymbol(int move) {
+        switch (GoBoomEngine.moveType(move)) {
+            case GoBoomEngine.MOVE_DRAW:
+                return SYMBOL_DRAW;
+            case GoBoomEngine.MOVE_PASS:
+                return SYMBOL_PASS;
+            default:
+                return GoBoomEngine.moveCard(move);
+        }
+    }
+
+    private static int fromSymbol(int symbol) {
+        if (symbol == SYMBOL_DRAW) {
+            return GoBoomEngine.encodeMove(GoBoomEngine.MOVE_DRAW, 0);
+        }
+        if (symbol == SYMBOL_PASS) {
+            return GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PASS, 0);
+        }
+        return GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PLAY, symbol);
+    }
+
+    private static void pack(byte[] moves, int count, ByteBuffer out) {
+        int bits = 0;
+        int pending = 0;
+        for (int i = 0; i < count; i++) {
+            bits |= toSymbol(moves[i] & 0xFF) << pending;
+            pending += 6;
+            if (pending >= 8) {
+                out.put((byte) bits);
+                bits >>>= 8;
+                pending -= 8;
+            }
+        }
+        if (pending > 0) {
+            out.put((byte) bits);
+        }
+    }
+
+    private static void unpack(byte[] in, int pos, int count, byte[] moves) {
+        int bits = 0;
+        int pending = 0;
+        for (int i = 0; i < count; i++) {
+            if (pending < 6) {
+                bits |= (in[pos++] & 0xFF) << pending;
+                pending += 8;
+            }
+            moves[i] = (byte) fromSymbol(bits & 0x3F);
+            bits >>>= 6;
+            pending -= 6;
+        }
+    }
+
+    /**
+     * Archives random bot games, then reads them back in order and at random and reports
+     * the rates.
+     *
+     * Usage: java GoBoomReplay [games] [file]
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Path file = Path.of(args.length > 1 ? args[1] : "go_boom_replays.gbra");
+
+        GoBoomEngine engine = new GoBoomEngine();
+        GoBoomEngine.Strategy[] bots = new GoBoomEngine.Strategy[engine.getNumPlayers()];
+        for (int i = 0; i < bots.length; i++) {
+            bots[i] = GoBoomBots.randomCard(i);
+        }
+
+        Game game = new Game();
+        long totalMoves = 0;
+        try (Writer writer = new Writer(file)) {
+            for (int i = 0; i < games; i++) {
+                record(engine, bots, GoBoomEngine.mix(i), game);
+                totalMoves += game.moveCount;
+                writer.add(game);
+            }
+        }
+        long size = java.nio.file.Files.size(file);
+        System.out.printf("Wrote %d games (%d moves) in %d bytes, %.1f bytes/game%n",
+                games, totalMoves, size, (double) size / games);
+
+        try (Reader reader = new Reader(file)) {
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (long id = 0; id < reader.getGameCount(); id++) {
+                checksum += reader.read(id, game).moveCount;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Sequential scan: %.0f games/s (%d moves)%n", games / seconds, checksum);
+
+            long state = 1;
+            start = System.nanoTime();
+            for (int i = 0; i < games; i++) {
+                state = GoBoomEngine.mix(state + i);
+                reader.read((state >>> 1) % games, game);
+            }
+            seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Random access:   %.0f games/s%n", games / seconds);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Saved games for many tables, kept in one directory: one table-[id].sav file per table, plus
+ * an index file with a fixed 16-byte record per table id (length, CRC32, kind and write
+ * version). Each save file starts with a 16-byte header (magic, kind, length and CRC32)
+ * followed by the save itself, the saveText() format of GoBoomGame for TEXT or
+ * GoBoomEngine.writeState() bytes for ENGINE_STATE, so neither is ever parsed as the other.
+ *
+ * Opening the store only memory-maps the index, so startup takes the same time whether it
+ * holds ten tables or a million. A table's save file is read, checked against its own header
+ * and parsed the first time the table is asked for. A save that fails the check is moved
+ * aside as table-[id].corrupt, the corruption handler hears about it and the table starts a
+ * new game instead.
+ *
+ * The save files are the truth and the index is only a summary of them: a crash between
+ * moving a save into place and updating its record leaves the record behind, and the next
+ * read of that table puts it right. If the index file is lost it is rebuilt from the
+ * headers when the store opens.
+ *
+ * Each write goes to its own temp file, forced to disk before it is moved into place. Moving
+ * it, updating the index record and checking a save before it is moved aside all hold the
+ * table's lock (one of LOCK_STRIPES, picked by table id), so a reader never judges a save by
+ * a half-finished replacement.
+ */
+public class GoBoomSaveStore implements Closeable {
+    public static final int TEXT = 0;
+    public static final int ENGINE_STATE = 1;
+
+    private static final String INDEX_FILE = "index.dat";
+    private static final int RECORD_SIZE = 16;
+    private static final int MAGIC = 0x47425356;
+    private static final int HEADER_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path directory;
+    private final int numPlayers;
+    private final int numDecks;
+    private final FileChannel indexChannel;
+    private final ConcurrentHashMap<Integer, GoBoomGame> tables = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private volatile IntConsumer corruptionHandler = tableId -> {
+    };
+    private volatile MappedByteBuffer index;
+    private volatile int capacity;
+
+    /**
+     * A save file that passed its check.
+     */
+    private static final class Save {
+        final int kind;
+        final byte[] bytes;
+
+        Save(int kind, byte[] bytes) {
+            this.kind = kind;
+            this.bytes = bytes;
+        }
+    }
+
+    // What load() returns for a save file that fails its check
+    private static final Save CORRUPT = new Save(-1, null);
+
+    public GoBoomSaveStore(Path directory, int numPlayers, int numDecks) throws IOException {
+        this.directory = directory;
+        this.numPlayers = numPlayers;
+        this.numDecks = numDecks;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        Files.createDirectories(directory);
+        indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean newIndex = indexChannel.size() == 0;
+        mapIndex(Math.max(INITIAL_CAPACITY, (int) (indexChannel.size() / RECORD_SIZE)));
+        if (newIndex) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Rewrites the index from the headers of the save files in the directory. Runs when the
+     * store opens without an index file; its cost grows with the number of saves.
+     */
+    public void rebuildIndex() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "table-*.sav")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int tableId;
+                try {
+                    tableId = Integer.parseInt(name.substring("table-".length(), name.length() - ".sav".length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                synchronized (lock(tableId)) {
+                    load(tableId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called with the id of every table whose save is found corrupt and moved aside.
+     */
+    public void setCorruptionHandler(IntConsumer corruptionHandler) {
+        this.corruptionHandler = corruptionHandler;
+    }
+
+    /**
+     * Whether the index has a save for this table. Does not touch the save file, so right
+     * after a crash it can disagree with it until the table is read.
+     */
+    public boolean contains(int tableId) {
+        return tableId >= 0 && tableId < capacity && index.getInt(tableId * RECORD_SIZE) > 0;
+    }
+
+    /**
+     * Returns the table's game, loading it on first access. Tables without a usable save get
+     * a freshly dealt game.
+     */
+    public GoBoomGame get(int tableId) {
+        GoBoomGame game = tables.get(tableId);
+        if (game != null) {
+            return game;
+        }
+        // Loaded under the table's lock rather than inside the map, so the disk reads never
+        // hold up other tables that happen to share a bin of the map
+        synchronized (lock(tableId)) {
+            game = tables.get(tableId);
+            if (game != null) {
+                return game;
+            }
+            game = new GoBoomGame(numPlayers, numDecks);
+            Save save = load(tableId);
+            if (save != null && save != CORRUPT && save.kind != TEXT) {
+                throw new IllegalStateException("Table " + tableId + " holds an engine state, not a game");
+            }
+            boolean loaded = save != null && save != CORRUPT
+                    && game.loadText(new String(save.bytes, StandardCharsets.UTF_8));
+            if (save != null && !loaded) {
+                quarantine(tableId);
+            }
+            if (!loaded) {
+                game.newGame();
+            }
+            GoBoomGame other = tables.putIfAbsent(tableId, game);
+            return other != null ? other : game;
+        }
+    }
+
+    /**
+     * Reads and checks a table's text save. Returns null if there is none, it is corrupt or it
+     * is not TEXT.
+     */
+    public String read(int tableId) {
+        byte[] bytes = readBytes(tableId, TEXT);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads and checks a table's save of the given kind as raw bytes, for callers that store
+     * their own format (see GoBoomTableScheduler). Returns null if there is none, it is
+     * corrupt or it is of another kind.
+     */
+    public byte[] readBytes(int tableId, int kind) {
+        synchronized (lock(tableId)) {
+            Save save = load(tableId);
+            return save != null && save.kind == kind ? save.bytes : null;
+        }
+    }
+
+    /**
+     * Reads the table's save file and checks it against its header, bringing the index record
+     * up to date with what is on disk. Returns null if there is no save file and CORRUPT if it
+     * fails the check. Must hold the table's lock.
+     */
+    private Save load(int tableId) {
+        byte[] file;
+        try {
+            file = Files.readAllBytes(saveFile(tableId));
+        } catch (NoSuchFileException e) {
+            if (contains(tableId)) {
+                index.putInt(tableId * RECORD_SIZE, 0);
+            }
+            return null;
+        } catch (IOException e) {
+            return CORRUPT;
+        }
+        ByteBuffer header = ByteBuffer.wrap(file);
+        if (file.length < HEADER_SIZE || header.getInt(0) != MAGIC
+                || header.getInt(8) != file.length - HEADER_SIZE) {
+            return CORRUPT;
+        }
+        byte[] bytes = Arrays.copyOfRange(file, HEADER_SIZE, file.length);
+        int checksum = checksum(bytes);
+        if (checksum != header.getInt(12)) {
+            return CORRUPT;
+        }
+        int kind = header.getInt(4);
+        int offset = tableId * RECORD_SIZE;
+        if (tableId >= capacity || index.getInt(offset) != bytes.length || index.getInt(offset + 4) != checksum
+                || index.getInt(offset + 8) != kind) {
+            try {
+                putRecord(tableId, bytes.length, checksum, kind);
+            } catch (IOException e) {
+                // Only the summary is out of date; the save itself is fine
+            }
+        }
+        return new Save(kind, bytes);
+    }
+
+    /**
+     * Saves a table's state. The file is written next to the old one, forced to disk and
+     * moved into place, then the index record is updated.
+     */
+    public void write(int tableId, String text) throws IOException {
+        write(tableId, text.getBytes(StandardCharsets.UTF_8), TEXT);
+    }
+
+    public void write(int tableId, byte[] bytes, int kind) throws IOException {
+        int checksum = checksum(bytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(kind).putInt(bytes.length).putInt(checksum).flip();
+        ByteBuffer[] parts = {header, ByteBuffer.wrap(bytes)};
+
+        Path temp = Files.createTempFile(directory, "table-" + tableId + "-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (parts[1].hasRemaining()) {
+                    channel.write(parts);
+                }
+                // On disk before it replaces the old save, so a crash leaves one or the other
+                channel.force(false);
+            }
+            synchronized (lock(tableId)) {
+                Files.move(temp, saveFile(tableId), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                putRecord(tableId, bytes.length, checksum, kind);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Updates the table's index record and counts one more write. Must hold the table's lock.
+     */
+    private void putRecord(int tableId, int length, int checksum, int kind) throws IOException {
+        synchronized (this) {
+            if (tableId >= capacity) {
+                mapIndex(Math.max(capacity * 2, tableId + 1));
+            }
+        }
+        int offset = tableId * RECORD_SIZE;
+        index.putInt(offset, length);
+        index.putInt(offset + 4, checksum);
+        index.putInt(offset + 8, kind);
+        index.putInt(offset + 12, index.getInt(offset + 12) + 1);
+    }
+
+    /**
+     * Saves a loaded table's current state.
+     */
+    public void save(int tableId) throws IOException {
+        GoBoomGame game = tables.get(tableId);
+        if (game != null) {
+            write(tableId, game.saveText());
+        }
+    }
+
+    /**
+     * Removes a table's save, e.g. when its game is over.
+     */
+    public void delete(int tableId) throws IOException {
+        synchronized (lock(tableId)) {
+            tables.remove(tableId);
+            // The file goes first, as the files are what counts: a crash before the record is
+            // cleared leaves a record without a file, which reads as no save
+            Files.deleteIfExists(saveFile(tableId));
+            if (contains(tableId)) {
+                index.putInt(tableId * RECORD_SIZE, 0);
+            }
+        }
+    }
+
+    /**
+     * How many times the table has been saved.
+     */
+    public int version(int tableId) {
+        return tableId < capacity ? index.getInt(tableId * RECORD_SIZE + 12) : 0;
+    }
+
+    /**
+     * TEXT or ENGINE_STATE, for a table that contains() a save.
+     */
+    public int kind(int tableId) {
+        return index.getInt(tableId * RECORD_SIZE + 8);
+    }
+
+    /**
+     * Moves a save that failed its check aside. Must hold the table's lock.
+     */
+    private void quarantine(int tableId) {
+        if (contains(tableId)) {
+            index.putInt(tableId * RECORD_SIZE, 0);
+        }
+        try {
+            Files.move(saveFile(tableId), directory.resolve("table-" + tableId + ".corrupt"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The index no longer points at the file, so leaving it behind is harmless
+        }
+        corruptionHandler.accept(tableId);
+    }
+
+    private Object lock(int tableId) {
+        return locks[tableId & (LOCK_STRIPES - 1)];
+    }
+
+    private void mapIndex(int newCapacity) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * RECORD_SIZE);
+        capacity = newCapacity;
+    }
+
+    private Path saveFile(int tableId) {
+        return directory.resolve("table-" + tableId + ".sav");
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        index.force();
+        indexChannel.close();
+    }
+}
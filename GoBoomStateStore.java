@@ -0,0 +1,160 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap storage for millions of GoBoomEngine rounds of one table size.
+ *
+ * Every round is a fixed-size record (GoBoomEngine.writeRecord(), 112 bytes for 4 players and
+ * 1 deck) in direct ByteBuffers outside the Java heap, so keeping ten million rounds costs
+ * about a gigabyte of native memory and nothing for the garbage collector to trace. Records
+ * are grouped in chunks of CHUNK_RECORDS to stay below the 2 GB limit of a single buffer.
+ *
+ * An engine acts as a flyweight: load() points it at a record, the engine plays on it and
+ * store() writes it back. Threads may work on different records at the same time, each with
+ * its own engine; nothing here locks.
+ */
+public class GoBoomStateStore {
+    public static final int CHUNK_SHIFT = 20;
+    public static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+
+    private final int numPlayers;
+    private final int numDecks;
+    private final int recordSize;
+    private final long capacity;
+    private final ByteBuffer[] chunks;
+
+    public GoBoomStateStore(int numPlayers, int numDecks, long capacity) {
+        this.numPlayers = numPlayers;
+        this.numDecks = numDecks;
+        this.recordSize = new GoBoomEngine(numPlayers, numDecks).getRecordSize();
+        this.capacity = capacity;
+
+        int chunkCount = (int) ((capacity + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT);
+        chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long records = Math.min(CHUNK_RECORDS, capacity - ((long) i << CHUNK_SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect((int) records * recordSize).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * An engine of the right size for this store's records.
+     */
+    public GoBoomEngine newEngine() {
+        return new GoBoomEngine(numPlayers, numDecks);
+    }
+
+    /**
+     * Deals a new round with the engine and stores it at index.
+     */
+    public void newRound(long index, GoBoomEngine engine, long seed) {
+        engine.newRound(seed);
+        store(index, engine);
+    }
+
+    public void load(long index, GoBoomEngine engine) {
+        engine.readRecord(chunk(index), offset(index));
+    }
+
+    public void store(long index, GoBoomEngine engine) {
+        engine.writeRecord(chunk(index), offset(index));
+    }
+
+    /**
+     * Plays one turn of the round at index. Returns the move, or -1 if that round is over.
+     */
+    public int step(long index, GoBoomEngine engine, GoBoomEngine.Strategy[] strategies) {
+        load(index, engine);
+        int move = engine.step(strategies);
+        if (move >= 0) {
+            store(index, engine);
+        }
+        return move;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Native memory held by the records.
+     */
+    public long getMemoryBytes() {
+        return capacity * recordSize;
+    }
+
+    private ByteBuffer chunk(long index) {
+        if (index < 0 || index >= capacity) {
+            throw new IndexOutOfBoundsException("No record " + index + " in a store of " + capacity);
+        }
+        return chunks[(int) (index >>> CHUNK_SHIFT)];
+    }
+
+    private int offset(long index) {
+        return (int) (index & (CHUNK_RECORDS - 1)) * recordSize;
+    }
+
+    /**
+     * Deals millions of rounds into a store and plays them all to the end one turn at a time,
+     * round-robin, reporting memory per game, turns per second and heap growth.
+     *
+     * Usage: java GoBoomStateStore [games] [threads]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        GoBoomStateStore store = new GoBoomStateStore(4, 1, games);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        AtomicLong turns = new AtomicLong();
+
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long from = games * t / threads;
+            long to = games * (t + 1) / threads;
+            workers[t] = new Thread(() -> {
+                GoBoomEngine engine = store.newEngine();
+                GoBoomEngine.Strategy[] bots = new GoBoomEngine.Strategy[4];
+                for (int i = 0; i < bots.length; i++) {
+                    bots[i] = GoBoomBots.randomCard(from + i);
+                }
+                for (long index = from; index < to; index++) {
+                    store.newRound(index, engine, GoBoomEngine.mix(index));
+                }
+                // Interleave the games the way an analysis over many live positions would
+                long played = 0;
+                boolean anyActive = true;
+                while (anyActive) {
+                    anyActive = false;
+                    for (long index = from; index < to; index++) {
+                        if (store.step(index, engine, bots) >= 0) {
+                            played++;
+                            anyActive = true;
+                        }
+                    }
+                }
+                turns.addAndGet(played);
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        System.out.printf("%d games, %d bytes each, %.1f MB off-heap%n", games, store.getRecordSize(),
+                store.getMemoryBytes() / 1e6);
+        System.out.printf("%d turns in %.2f s on %d threads: %.1fM turns/s%n", turns.get(), seconds, threads,
+                turns.get() / seconds / 1e6);
+        System.out.printf("Heap grew by %.1f MB while playing%n", (heapAfter - heapBefore) / 1e6);
+    }
+}
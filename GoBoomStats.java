@@ -0,0 +1,178 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many simulated rounds on GoBoomEngine and aggregates statistics into a CSV file:
+ * first-player win rate by lead-card rank, trick-win probability by card, average draws per
+ * trick and the distribution of round lengths.
+ *
+ * Each worker thread owns one engine and one accumulator of primitive counters, and the
+ * accumulators are only merged once all games are done, so memory use does not depend on
+ * the number of games simulated.
+ *
+ * Usage: java GoBoomStats [games] [threads] [seed] [output.csv] [players] [decks]
+ */
+public class GoBoomStats {
+    private static final int MAX_TRICKS = 64;
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Per-thread counters. Only the owning thread writes to it until merge().
+     */
+    static class Accumulator implements GoBoomEngine.Listener {
+        final long[] leadRankRounds = new long[GoBoomEngine.NUM_RANKS];
+        final long[] leadRankFirstPlayerWins = new long[GoBoomEngine.NUM_RANKS];
+        final long[] cardPlays = new long[GoBoomEngine.NUM_CARDS];
+        final long[] cardTrickWins = new long[GoBoomEngine.NUM_CARDS];
+        // Bucket MAX_TRICKS collects every round that lasted MAX_TRICKS tricks or more
+        final long[] roundLengths = new long[MAX_TRICKS + 1];
+        long rounds;
+        long tricks;
+        long draws;
+
+        @Override
+        public void cardPlayed(int seat, int card) {
+            cardPlays[card]++;
+        }
+
+        @Override
+        public void cardDrawn(int seat, int card) {
+            draws++;
+        }
+
+        @Override
+        public void trickWon(int seat, int card, int trickNumber) {
+            cardTrickWins[card]++;
+            tricks++;
+        }
+
+        @Override
+        public void roundOver(int winner, int trickCount) {
+            rounds++;
+            roundLengths[Math.min(trickCount, MAX_TRICKS)]++;
+        }
+
+        void recordFirstPlayer(int firstLeadCard, int firstSeat, int winner) {
+            int rank = GoBoomEngine.rankOf(firstLeadCard);
+            leadRankRounds[rank]++;
+            if (winner == firstSeat) {
+                leadRankFirstPlayerWins[rank]++;
+            }
+        }
+
+        void merge(Accumulator other) {
+            add(leadRankRounds, other.leadRankRounds);
+            add(leadRankFirstPlayerWins, other.leadRankFirstPlayerWins);
+            add(cardPlays, other.cardPlays);
+            add(cardTrickWins, other.cardTrickWins);
+            add(roundLengths, other.roundLengths);
+            rounds += other.rounds;
+            tricks += other.tricks;
+            draws += other.draws;
+        }
+
+        private static void add(long[] target, long[] source) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += source[i];
+            }
+        }
+    }
+
+    /**
+     * Simulates the given number of rounds with random bots on all seats and returns the
+     * merged counters.
+     */
+    public static Accumulator simulate(long games, int threads, long seed, int numPlayers, int numDecks)
+            throws InterruptedException {
+        AtomicLong nextGame = new AtomicLong();
+        Accumulator[] accumulators = new Accumulator[threads];
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            Accumulator accumulator = new Accumulator();
+            accumulators[t] = accumulator;
+            long botSeed = GoBoomEngine.mix(seed ^ (t + 1));
+            GoBoomEngine engine = new GoBoomEngine(numPlayers, numDecks);
+            workers[t] = new Thread(() -> runWorker(engine, nextGame, games, seed, botSeed, accumulator), "stats-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Accumulator total = accumulators[0];
+        for (int t = 1; t < threads; t++) {
+            total.merge(accumulators[t]);
+        }
+        return total;
+    }
+
+    private static void runWorker(GoBoomEngine engine, AtomicLong nextGame, long games, long seed, long botSeed,
+                                  Accumulator accumulator) {
+        engine.setListener(accumulator);
+        GoBoomEngine.Strategy[] bots = new GoBoomEngine.Strategy[engine.getNumPlayers()];
+        for (int i = 0; i < bots.length; i++) {
+            bots[i] = GoBoomBots.randomCard(botSeed + i);
+        }
+
+        while (true) {
+            long start = nextGame.getAndAdd(CHUNK_SIZE);
+            if (start >= games) {
+                return;
+            }
+            long end = Math.min(start + CHUNK_SIZE, games);
+            for (long game = start; game < end; game++) {
+                engine.newRound(GoBoomEngine.mix(seed + game));
+                int winner = engine.playRound(bots);
+                accumulator.recordFirstPlayer(engine.getFirstLeadCard(), engine.getFirstSeat(), winner);
+            }
+        }
+    }
+
+    /**
+     * Writes the counters as CSV rows of metric,key,count,total,value.
+     */
+    public static void writeCsv(Accumulator stats, PrintWriter out) {
+        out.println("metric,key,count,total,value");
+
+        for (int rank = 0; rank < GoBoomEngine.NUM_RANKS; rank++) {
+            writeRow(out, "first_player_win_rate", GoBoomEngine.RANKS[rank],
+                    stats.leadRankFirstPlayerWins[rank], stats.leadRankRounds[rank]);
+        }
+        for (int card = 0; card < GoBoomEngine.NUM_CARDS; card++) {
+            writeRow(out, "trick_win_rate", GoBoomEngine.cardName(card),
+                    stats.cardTrickWins[card], stats.cardPlays[card]);
+        }
+        writeRow(out, "draws_per_trick", "all", stats.draws, stats.tricks);
+        for (int length = 1; length <= MAX_TRICKS; length++) {
+            String key = length == MAX_TRICKS ? MAX_TRICKS + "+" : Integer.toString(length);
+            writeRow(out, "round_length", key, stats.roundLengths[length], stats.rounds);
+        }
+    }
+
+    private static void writeRow(PrintWriter out, String metric, String key, long count, long total) {
+        double value = total == 0 ? 0.0 : (double) count / total;
+        out.println(metric + "," + key + "," + count + "," + total + "," + value);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        String output = args.length > 3 ? args[3] : "go_boom_stats.csv";
+        int numPlayers = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        int numDecks = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+
+        long startTime = System.nanoTime();
+        Accumulator stats = simulate(games, threads, seed, numPlayers, numDecks);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(output))) {
+            writeCsv(stats, out);
+        }
+        System.out.printf("Simulated %d games on %d threads in %.2f s (%.0f games/s), written to %s%n",
+                stats.rounds, threads, seconds, stats.rounds / seconds, output);
+    }
+}
@@ -0,0 +1,582 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many GoBoomEngine tables of one size for a game service: matches waiting players into
+ * tables, plays bot seats, waits for human seats and tears tables down when their round ends.
+ *
+ * Every table belongs to one worker thread, chosen from its id, and only that thread ever
+ * touches the table. Each worker keeps its own pool of engines, so a new table reuses the
+ * deck and hand arrays of a finished one and nothing needs locking. Human moves and new
+ * tables reach a worker through its task queue. A table whose human has not moved for a
+ * while is written to the save store and its engine goes back to the pool; the next move on
+ * it loads it again. Evicted tables are stored under a slot number rather than their table
+ * id: table ids keep counting up, but slots are reused once a table finishes, so the store
+ * only grows to the most tables ever evicted at the same time.
+ */
+public class GoBoomTableScheduler implements AutoCloseable {
+    private static final int MAX_POOLED_ENGINES = 256;
+    private static final long EVICTION_CHECK_MILLIS = 100;
+
+    /**
+     * Hears about a human player's tables. Called on the table's worker thread, so it should
+     * hand work off rather than block.
+     */
+    public interface Client {
+        /**
+         * It is this seat's turn and it has a card to play; answer with submitMove().
+         */
+        void turn(int tableId, int seat, long legalCards);
+
+        /**
+         * The table is gone. winner is -1 if it ended without one: the scheduler closed, or
+         * the table's evicted state could not be loaded back.
+         */
+        void roundOver(int tableId, int winner);
+    }
+
+    /**
+     * Someone who can take a seat: a bot with its strategy or a human with a client.
+     */
+    public static final class Player {
+        private final long id;
+        private final GoBoomEngine.Strategy bot;
+        private final Client client;
+
+        private Player(long id, GoBoomEngine.Strategy bot, Client client) {
+            this.id = id;
+            this.bot = bot;
+            this.client = client;
+        }
+
+        /**
+         * A bot seat. Its strategy must not be shared with another table.
+         */
+        public static Player bot(long id, GoBoomEngine.Strategy strategy) {
+            return new Player(id, strategy, null);
+        }
+
+        public static Player human(long id, Client client) {
+            return new Player(id, null, client);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public boolean isHuman() {
+            return bot == null;
+        }
+    }
+
+    /**
+     * A table's seats and, unless it has been evicted, its engine.
+     */
+    private static final class Table {
+        final int id;
+        final Player[] seats;
+        final GoBoomEngine.Strategy[] strategies;
+        GoBoomEngine engine;
+        long lastActive;
+        // The table's slot in the store once it has been evicted, -1 before
+        int slot = -1;
+
+        Table(int id, Player[] seats) {
+            this.id = id;
+            this.seats = seats;
+            strategies = new GoBoomEngine.Strategy[seats.length];
+            for (int i = 0; i < seats.length; i++) {
+                strategies[i] = seats[i].bot;
+            }
+        }
+    }
+
+    private final int numPlayers;
+    private final int numDecks;
+    private final long seed;
+    private final long idleNanos;
+    private final GoBoomSaveStore store;
+    private final Worker[] workers;
+    private final ArrayDeque<Player> waiting = new ArrayDeque<>();
+    private final AtomicInteger nextTableId = new AtomicInteger();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int nextSlot;
+    private final AtomicLong nextBotId = new AtomicLong(-1);
+    private final AtomicLong tablesCreated = new AtomicLong();
+    private final AtomicLong tablesFinished = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong tablesLost = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Starts the worker threads. Evicted tables are kept in store, which should be used by
+     * this scheduler only.
+     */
+    public GoBoomTableScheduler(int numPlayers, int numDecks, int threads, long idleMillis,
+                                GoBoomSaveStore store, long seed) {
+        GoBoomEngine.checkTableSize(numPlayers, numDecks);
+        this.numPlayers = numPlayers;
+        this.numDecks = numDecks;
+        this.seed = seed;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.store = store;
+
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+            Thread thread = new Thread(workers[i], "tables-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Puts a player in the queue. As soon as a full table is waiting it is seated.
+     */
+    public void enqueue(Player player) {
+        Player[] seats = null;
+        synchronized (waiting) {
+            waiting.add(player);
+            if (waiting.size() >= numPlayers) {
+                seats = takeWaiting(numPlayers);
+            }
+        }
+        if (seats != null) {
+            createTable(seats);
+        }
+    }
+
+    /**
+     * Seats everyone still waiting, filling the empty seats with random-card bots. A service
+     * calls this when players have waited long enough for a full table.
+     */
+    public void seatWaitingWithBots() {
+        while (true) {
+            Player[] seats;
+            synchronized (waiting) {
+                if (waiting.isEmpty()) {
+                    return;
+                }
+                seats = takeWaiting(Math.min(waiting.size(), numPlayers));
+            }
+            for (int i = 0; i < numPlayers; i++) {
+                if (seats[i] == null) {
+                    long botId = nextBotId.getAndDecrement();
+                    seats[i] = Player.bot(botId, GoBoomBots.randomCard(seed ^ botId));
+                }
+            }
+            createTable(seats);
+        }
+    }
+
+    private Player[] takeWaiting(int count) {
+        Player[] seats = new Player[numPlayers];
+        for (int i = 0; i < count; i++) {
+            seats[i] = waiting.poll();
+        }
+        return seats;
+    }
+
+    public int getWaitingCount() {
+        synchronized (waiting) {
+            return waiting.size();
+        }
+    }
+
+    /**
+     * Opens a table with these players and deals its round. Returns the table id.
+     */
+    public int createTable(Player[] seats) {
+        if (seats.length != numPlayers) {
+            throw new IllegalArgumentException("A table needs " + numPlayers + " players");
+        }
+        int tableId = nextTableId.getAndIncrement();
+        Player[] copy = seats.clone();
+        workerFor(tableId).submit(worker -> worker.open(new Table(tableId, copy)));
+        return tableId;
+    }
+
+    /**
+     * Plays a human's move. The future completes with false if the table is gone, it is not
+     * that seat's turn or the move is not legal.
+     */
+    public CompletableFuture<Boolean> submitMove(int tableId, int seat, int move) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        workerFor(tableId).submit(new Task() {
+            @Override
+            public void run(Worker worker) {
+                result.complete(worker.move(tableId, seat, move));
+            }
+
+            @Override
+            public void cancel() {
+                result.completeExceptionally(new IllegalStateException("The scheduler is closed"));
+            }
+        });
+        return result;
+    }
+
+    private Worker workerFor(int tableId) {
+        if (closed) {
+            throw new IllegalStateException("The scheduler is closed");
+        }
+        return workers[(int) ((GoBoomEngine.mix(tableId) >>> 1) % workers.length)];
+    }
+
+    public long getTablesCreated() {
+        return tablesCreated.get();
+    }
+
+    public long getTablesFinished() {
+        return tablesFinished.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    /**
+     * Tables closed because their evicted state was missing or corrupt.
+     */
+    public long getTablesLost() {
+        return tablesLost.get();
+    }
+
+    private int takeSlot() {
+        synchronized (freeSlots) {
+            Integer slot = freeSlots.poll();
+            return slot != null ? slot : nextSlot++;
+        }
+    }
+
+    private void releaseSlot(int slot) {
+        synchronized (freeSlots) {
+            freeSlots.push(slot);
+        }
+    }
+
+    private interface Task {
+        void run(Worker worker);
+
+        /**
+         * Called instead of run() for tasks still queued when the scheduler closes.
+         */
+        default void cancel() {
+        }
+    }
+
+    /**
+     * One worker thread with the tables pinned to it and its own engine pool.
+     */
+    private final class Worker implements Runnable {
+        private final LinkedBlockingQueue<Task> tasks = new LinkedBlockingQueue<>();
+        private final HashMap<Integer, Table> tables = new HashMap<>();
+        private final ArrayDeque<GoBoomEngine> pool = new ArrayDeque<>();
+        private Thread thread;
+        private boolean running = true;
+        private volatile boolean stopped;
+
+        void submit(Task task) {
+            tasks.add(task);
+            if (stopped) {
+                // Too late for the worker to see it
+                cancelPending();
+            }
+        }
+
+        private void cancelPending() {
+            Task task;
+            while ((task = tasks.poll()) != null) {
+                task.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            long nextEvictionCheck = System.nanoTime();
+            while (running) {
+                Task task;
+                try {
+                    task = tasks.poll(EVICTION_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (task != null) {
+                    try {
+                        task.run(this);
+                    } catch (RuntimeException e) {
+                        System.out.println(thread.getName() + ": " + e);
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now >= nextEvictionCheck) {
+                    evictIdle(now);
+                    nextEvictionCheck = now + TimeUnit.MILLISECONDS.toNanos(EVICTION_CHECK_MILLIS);
+                }
+            }
+            stopped = true;
+            cancelPending();
+        }
+
+        void open(Table table) {
+            table.engine = takeEngine();
+            table.engine.newRound(GoBoomEngine.mix(seed + table.id));
+            tables.put(table.id, table);
+            tablesCreated.incrementAndGet();
+            advance(table);
+        }
+
+        boolean move(int tableId, int seat, int move) {
+            Table table = tables.get(tableId);
+            if (table == null || (table.engine == null && !reload(table))) {
+                return false;
+            }
+            GoBoomEngine engine = table.engine;
+            if (engine.getCurrentSeat() != seat || table.seats[seat].bot != null) {
+                return false;
+            }
+            try {
+                engine.applyMove(move);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            advance(table);
+            return true;
+        }
+
+        /**
+         * Plays bot turns, and humans' forced draws and passes, until a human has a choice to
+         * make or the round is over.
+         */
+        private void advance(Table table) {
+            GoBoomEngine engine = table.engine;
+            table.lastActive = System.nanoTime();
+            while (!engine.isRoundOver()) {
+                int seat = engine.getCurrentSeat();
+                Player player = table.seats[seat];
+                long legal = engine.legalCards(seat);
+                if (player.bot == null && legal != 0) {
+                    player.client.turn(table.id, seat, legal);
+                    return;
+                }
+                engine.applyMove(engine.chooseMove(table.strategies));
+            }
+            finish(table);
+        }
+
+        private void finish(Table table) {
+            tablesFinished.incrementAndGet();
+            tables.remove(table.id);
+            end(table, table.engine.getRoundWinner());
+        }
+
+        /**
+         * Tells the table's humans it is over and frees its engine and its store slot. The
+         * caller has already taken it out of tables.
+         */
+        private void end(Table table, int winner) {
+            for (Player player : table.seats) {
+                if (player.client != null) {
+                    player.client.roundOver(table.id, winner);
+                }
+            }
+            if (table.engine != null) {
+                releaseEngine(table.engine);
+                table.engine = null;
+            }
+            if (table.slot >= 0) {
+                try {
+                    store.delete(table.slot);
+                    releaseSlot(table.slot);
+                } catch (IOException e) {
+                    // The slot keeps the stale state and is not handed out again
+                    System.out.println("Could not delete the save of table " + table.id + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private void evictIdle(long now) {
+            for (Table table : tables.values()) {
+                if (table.engine != null && now - table.lastActive >= idleNanos) {
+                    evict(table);
+                }
+            }
+        }
+
+        /**
+         * Ends every table without a winner. Nothing is evicted: the slot of a table lives only
+         * in this scheduler, so its saved state could never be found again.
+         */
+        private void endAll() {
+            for (Table table : tables.values()) {
+                end(table, -1);
+            }
+            tables.clear();
+        }
+
+        /**
+         * Writes the table's engine to the store and returns the engine to the pool. The seats
+         * stay in memory; they are only a few references.
+         */
+        private void evict(Table table) {
+            // The store keeps the array, so every eviction needs its own
+            ByteBuffer state = ByteBuffer.allocate(table.engine.getStateSize());
+            table.engine.writeState(state);
+            if (table.slot < 0) {
+                table.slot = takeSlot();
+            }
+            try {
+                store.write(table.slot, state.array(), GoBoomSaveStore.ENGINE_STATE);
+            } catch (IOException e) {
+                System.out.println("Could not evict table " + table.id + ": " + e.getMessage());
+                return;
+            }
+            releaseEngine(table.engine);
+            table.engine = null;
+            evictions.incrementAndGet();
+        }
+
+        private boolean reload(Table table) {
+            byte[] bytes = store.readBytes(table.slot, GoBoomSaveStore.ENGINE_STATE);
+            GoBoomEngine engine = takeEngine();
+            if (bytes == null || bytes.length != engine.getStateSize()) {
+                releaseEngine(engine);
+                tables.remove(table.id);
+                tablesLost.incrementAndGet();
+                end(table, -1);
+                return false;
+            }
+            engine.readState(ByteBuffer.wrap(bytes));
+            table.engine = engine;
+            reloads.incrementAndGet();
+            return true;
+        }
+
+        private GoBoomEngine takeEngine() {
+            GoBoomEngine engine = pool.poll();
+            return engine != null ? engine : new GoBoomEngine(numPlayers, numDecks);
+        }
+
+        private void releaseEngine(GoBoomEngine engine) {
+            if (pool.size() < MAX_POOLED_ENGINES) {
+                pool.push(engine);
+            }
+        }
+    }
+
+    /**
+     * Ends every unfinished table, telling its humans with roundOver(tableId, -1), frees its
+     * store slot and stops the workers. Moves submitted too late to be played complete
+     * exceptionally.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Worker worker : workers) {
+            worker.submit(w -> {
+                w.endAll();
+                w.running = false;
+            });
+        }
+        boolean interrupted = false;
+        for (Worker worker : workers) {
+            while (worker.thread.isAlive()) {
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Opens bot-only tables as fast as the workers take them, then runs tables with one slow
+     * human each (a client answering after a random delay) so some get evicted and reloaded.
+     *
+     * Usage: java GoBoomTableScheduler [botTables] [humanTables] [threads]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int botTables = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int humanTables = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Path directory = Files.createTempDirectory("go-boom-tables");
+        try (GoBoomSaveStore store = new GoBoomSaveStore(directory, 4, 1)) {
+            GoBoomTableScheduler scheduler = new GoBoomTableScheduler(4, 1, threads, 100, store, 1);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < botTables; i++) {
+                scheduler.enqueue(Player.bot(i, GoBoomBots.randomCard(i)));
+            }
+            while (scheduler.getTablesFinished() < botTables / 4) {
+                Thread.sleep(1);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d bot tables created and played in %.2f s: %.0f tables/s%n",
+                    botTables / 4, seconds, botTables / 4 / seconds);
+
+            ScheduledExecutorService humans = Executors.newScheduledThreadPool(2);
+            CountDownLatch finished = new CountDownLatch(humanTables);
+            Client slowHuman = new Client() {
+                private final Random random = new Random(7);
+
+                @Override
+                public void turn(int tableId, int seat, long legalCards) {
+                    int card = Long.numberOfTrailingZeros(legalCards);
+                    long delay;
+                    synchronized (random) {
+                        delay = random.nextInt(10) == 0 ? 300 : random.nextInt(20);
+                    }
+                    humans.schedule(() -> scheduler.submitMove(tableId, seat,
+                            GoBoomEngine.encodeMove(GoBoomEngine.MOVE_PLAY, card)), delay, TimeUnit.MILLISECONDS);
+                }
+
+                @Override
+                public void roundOver(int tableId, int winner) {
+                    finished.countDown();
+                }
+            };
+
+            long before = scheduler.getTablesFinished();
+            start = System.nanoTime();
+            for (int i = 0; i < humanTables; i++) {
+                scheduler.enqueue(Player.human(1_000_000 + i, slowHuman));
+                scheduler.seatWaitingWithBots();
+            }
+            finished.await();
+            System.out.printf("%d tables with a human finished in %.2f s, %d evictions, %d reloads%n",
+                    scheduler.getTablesFinished() - before, (System.nanoTime() - start) / 1e9,
+                    scheduler.getEvictions(), scheduler.getReloads());
+
+            humans.shutdown();
+            scheduler.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD version of GoBoomBatchTricks.resolve(): the same keys, computed for as many games
+ * as fit in a vector at once. Only GoBoomBatchTricks should refer to this class, and only by
+ * name, so that a JVM without the jdk.incubator.vector module never loads it. It is kept out
+ * of the main sources because it only compiles with that module:
+ * <pre>
+ *   javac --add-modules jdk.incubator.vector -cp . -d . vector/GoBoomBatchTricksVector.java
+ * </pre>
+ */
+final class GoBoomBatchTricksVector implements GoBoomBatchTricks.Resolver {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void resolve(int numPlayers, int count, int[] cards, int[] leadCards, int[] startSeats, int[] winners) {
+        IntVector zero = IntVector.zero(SPECIES);
+        IntVector fifteen = IntVector.broadcast(SPECIES, 15);
+        int bound = SPECIES.loopBound(count);
+        int game = 0;
+        for (; game < bound; game += SPECIES.length()) {
+            IntVector leadSuit = IntVector.fromArray(SPECIES, leadCards, game)
+                    .mul(GoBoomBatchTricks.SUIT_MULTIPLIER)
+                    .lanewise(VectorOperators.ASHR, GoBoomBatchTricks.SUIT_SHIFT);
+            IntVector start = IntVector.fromArray(SPECIES, startSeats, game);
+            IntVector best = zero;
+
+            for (int seat = 0; seat < numPlayers; seat++) {
+                IntVector card = IntVector.fromArray(SPECIES, cards, seat * count + game);
+                IntVector suit = card.mul(GoBoomBatchTricks.SUIT_MULTIPLIER)
+                        .lanewise(VectorOperators.ASHR, GoBoomBatchTricks.SUIT_SHIFT);
+                IntVector rank = card.sub(suit.mul(GoBoomEngine.NUM_RANKS));
+                VectorMask<Integer> played = card.compare(VectorOperators.GE, 0);
+                VectorMask<Integer> follows = suit.compare(VectorOperators.EQ, leadSuit).and(played);
+                IntVector primary = zero.blend(1, played).blend(rank.add(2), follows);
+
+                IntVector order = start.neg().add(seat);
+                order = order.lanewise(VectorOperators.ADD, numPlayers, order.compare(VectorOperators.LT, 0));
+                best = best.max(primary.lanewise(VectorOperators.LSHL, 4).or(fifteen.sub(order)));
+            }
+
+            IntVector winner = start.add(fifteen.sub(best.and(15)));
+            winner = winner.lanewise(VectorOperators.SUB, numPlayers, winner.compare(VectorOperators.GE, numPlayers));
+            winner.blend(-1, best.compare(VectorOperators.LT, 16)).intoArray(winners, game);
+        }
+        GoBoomBatchTricks.resolveScalar(numPlayers, game, count, cards, leadCards, startSeats, winners);
+    }
+}